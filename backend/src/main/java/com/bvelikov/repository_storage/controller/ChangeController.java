@@ -0,0 +1,81 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.dto.ChangesDTO;
+import com.bvelikov.repository_storage.service.ChangeBroadcaster;
+import com.bvelikov.repository_storage.service.ChangeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController()
+@RequestMapping("/api/changes")
+public class ChangeController {
+
+    @Autowired
+    private ChangeService changeService;
+
+    @Autowired
+    private ChangeBroadcaster changeBroadcaster;
+
+    @Value("${repository-storage.list.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${repository-storage.list.max-page-size:1000}")
+    private int maxPageSize;
+
+    /**
+     * A method that lists the repositories and secrets that were created, changed or deleted since a token. The
+     * token of the first request can be taken with {@link #getLatestToken()}. Without a token, all repositories and
+     * secrets are listed.
+     *
+     * @param since the token returned with the previous changes
+     * @param size the maximum number of repositories, secrets and deletions each, capped at the configured maximum
+     *             page size
+     * @return Response entity with response code 200 and body containing the changes, the token to pass with the next
+     *         request and a flag that more changes are ready,
+     *         response entity with response code 400 if the token is not valid or the size is not positive.
+     */
+    @GetMapping("")
+    public ResponseEntity<ChangesDTO> getChanges(@RequestParam(required = false) String since,
+                                                 @RequestParam(required = false) Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.min(size, maxPageSize);
+        if (pageSize <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return changeService.getChanges(since, pageSize);
+    }
+
+    /**
+     * A method that returns a token following all changes made so far.
+     *
+     * @return Response entity with response code 200 and body containing no changes and the token.
+     */
+    @GetMapping("/latest")
+    public ResponseEntity<ChangesDTO> getLatestToken() {
+        return changeService.getLatestToken();
+    }
+
+    /**
+     * A method that subscribes to the changes as server-sent events. Every committed write is pushed as a
+     * <i>change</i> event with the same content as a response of {@link #getChanges(String, Integer)}, without a
+     * token. A client that does not keep up with the events is disconnected, so after every (re)connect the client
+     * should read the changes it missed with its token.
+     *
+     * @return Response entity with response code 200 and body streaming the events,
+     *         response entity with response code 503 if the maximum number of subscribers is reached.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges() {
+        SseEmitter emitter = changeBroadcaster.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        return ResponseEntity.ok(emitter);
+    }
+}
@@ -1,50 +1,186 @@
 package com.bvelikov.repository_storage.controller;
 
+import com.bvelikov.repository_storage.dto.BulkVerificationRequestDTO;
+import com.bvelikov.repository_storage.dto.FlatRepositoryDTO;
 import com.bvelikov.repository_storage.dto.RepositoryDTO;
+import com.bvelikov.repository_storage.dto.RepositoryPageDTO;
+import com.bvelikov.repository_storage.dto.RepositorySearchDTO;
+import com.bvelikov.repository_storage.dto.ResolvedSecretsDTO;
 import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.repository.RepositoryListRow;
 import com.bvelikov.repository_storage.repository.RepositoryRepository;
-import com.bvelikov.repository_storage.repository.SecretRepository;
-import com.bvelikov.repository_storage.security.encryption.EncryptionUtil;
-import com.bvelikov.repository_storage.service.SecretService;
+import com.bvelikov.repository_storage.service.ChangeEvent;
+import com.bvelikov.repository_storage.service.RepositoryService;
+import com.bvelikov.repository_storage.service.SecretResolutionService;
+import com.bvelikov.repository_storage.verification.RepositoryVerificationService;
+import com.bvelikov.repository_storage.verification.VerificationCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.*;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @RestController()
 @RequestMapping("/api/repository")
 public class RepositoryController {
-    private final RestTemplate restTemplate = new RestTemplate();
-
     @Autowired
     private RepositoryRepository repositoryRepository;
 
     @Autowired
-    private SecretRepository secretRepository;
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private SecretResolutionService secretResolutionService;
+
+    @Autowired
+    private RepositoryVerificationService repositoryVerificationService;
+
+    @Autowired
+    private VerificationCache verificationCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @Autowired
-    private SecretService secretService;
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Value("${repository-storage.list.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${repository-storage.list.max-page-size:1000}")
+    private int maxPageSize;
 
     /**
-     * A method that lists all repositories.
+     * A method that lists all repositories. Only the listed columns are read, without loading entities.
      *
      * @return A list containing all repositories in the database.
      */
     @GetMapping("/list")
     public List<RepositoryDTO> getAllRepositories() {
-        List<Repository> repositories = repositoryRepository.findAll();
+        return RepositoryDTO.toDTOs(repositoryRepository.findAllListRows());
+    }
+
+    /**
+     * A method that lists all repositories in a flat form, with the ids and keys of their secrets instead of nested
+     * secrets. Like all listings, it is encoded as JSON, CBOR (<i>application/cbor</i>) or Smile
+     * (<i>application/x-jackson-smile</i>), depending on the request's <i>Accept</i> header.
+     *
+     * @return A list containing all repositories in the database.
+     */
+    @GetMapping("/list/flat")
+    public List<FlatRepositoryDTO> getAllRepositoriesFlat() {
+        return FlatRepositoryDTO.toDTOs(repositoryRepository.findAllListRows());
+    }
+
+    /**
+     * A method that lists a single page of repositories, using the repository id as a cursor.
+     *
+     * @param after the cursor returned with the previous page, omitted for the first page
+     * @param size the number of repositories in the page, capped at the configured maximum page size
+     * @return Response entity with response code 200 and body containing the page and the cursor for the next page
+     *         (null if this is the last page),
+     *         response entity with response code 400 if the page size is not positive.
+     */
+    @GetMapping("/list/page")
+    public ResponseEntity<RepositoryPageDTO> getRepositoryPage(@RequestParam(required = false) Long after,
+                                                               @RequestParam(required = false) Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.min(size, maxPageSize);
+        if (pageSize <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        List<RepositoryDTO> dtos = new ArrayList<>();
-        repositories.forEach(repository -> dtos.add(RepositoryDTO.toDTO(repository)));
+        List<Long> ids = repositoryRepository.findIdsByIdGreaterThan(after == null ? 0L : after, Limit.of(pageSize));
 
-        return dtos;
+        return ResponseEntity.ok(toPage(ids, pageSize));
+    }
+
+    /**
+     * A method that lists a single page of the repositories matching a search, using the repository id as a cursor.
+     * Only the filters that are set are applied.
+     *
+     * @param search the url, with the way in which it is matched (<i>PREFIX</i> by default), the repository type,
+     *               the repository owner and the key of a secret that the repository must have
+     * @param after the cursor returned with the previous page, omitted for the first page
+     * @param size the number of repositories in the page, capped at the configured maximum page size
+     * @return Response entity with response code 200 and body containing the page and the cursor for the next page
+     *         (null if this is the last page),
+     *         response entity with response code 400 if the page size is not positive or a filter is not valid.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<RepositoryPageDTO> searchRepositories(RepositorySearchDTO search,
+                                                                @RequestParam(required = false) Long after,
+                                                                @RequestParam(required = false) Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.min(size, maxPageSize);
+        if (pageSize <= 0 || search.getMatch() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<Long> ids = repositoryRepository.findIdsBySearch(search, after == null ? 0L : after, Limit.of(pageSize));
+
+        return ResponseEntity.ok(toPage(ids, pageSize));
+    }
+
+    private RepositoryPageDTO toPage(List<Long> ids, int pageSize) {
+        List<Repository> repositories = ids.isEmpty()
+                ? List.of()
+                : repositoryRepository.findWithSecretsByIdIn(ids, Sort.by("id"));
+
+        RepositoryPageDTO page = new RepositoryPageDTO();
+        repositories.forEach(repository -> page.getRepositories().add(RepositoryDTO.toDTO(repository)));
+        if (ids.size() == pageSize) {
+            page.setNextCursor(ids.get(ids.size() - 1));
+        }
+
+        return page;
+    }
+
+    /**
+     * A method that streams all repositories as a JSON array. Repositories are written to the response as their rows
+     * are read from the database. The rows are not managed entities, so memory usage does not depend on the number of
+     * repositories.
+     *
+     * @return Response entity with response code 200 and body containing all repositories in the database.
+     */
+    @GetMapping("/list/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllRepositories() {
+        StreamingResponseBody body = outputStream -> transactionTemplate.executeWithoutResult(status -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+                 Stream<RepositoryListRow> rows = repositoryRepository.streamAllListRows()) {
+                generator.writeStartArray();
+                RepositoryDTO.forEachDTO(rows::iterator, repositoryDTO -> {
+                    try {
+                        generator.writeObject(repositoryDTO);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     /**
@@ -63,6 +199,7 @@ public class RepositoryController {
             repository.setId(null);
 
             repository = repositoryRepository.save(repository);
+            applicationEventPublisher.publishEvent(new ChangeEvent().changed(repository));
 
             return ResponseEntity.ok(RepositoryDTO.toDTO(repository));
         } catch(DataIntegrityViolationException e) {
@@ -75,77 +212,90 @@ public class RepositoryController {
      *
      * @param id the repository id, passed in the request path
      * @return Response entity with response code 200 if the secrets are correct,
-     *         response entity with response code 400 if the repository type is not supported,
+     *         response entity with response code 400 if the repository type is not supported or its url is not valid,
      *         response entity with response code 404 if the repository is not found,
+     *         response entity with response code 429 if the provider's rate limit budget is not available in time,
+     *         response entity with response code 500 if an error occurs while decrypting the secret,
+     *         response entity with response code 503 if the repository provider could not be reached,
+     *         response entity with response code 504 if the repository provider did not respond in time,
      *         response entity with response code of the response from the repository provider if the secret is wrong.
      */
     @GetMapping("/verify/{id}")
     public ResponseEntity<Void> verifyRepository(@PathVariable Long id) {
-        Optional<Repository> potentialRepository = repositoryRepository.findById(id);
+        Optional<Repository> potentialRepository = repositoryRepository.findWithSecretsById(id);
         if (potentialRepository.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        Repository repository = potentialRepository.get();
-        switch (repository.getRepositoryType()) {
-            case GIT_HUB:
-                return verifyGitHubRepository(repository);
-            case GIT_LAB:
-            case BIT_BUCKET:
-            default:
-                return ResponseEntity.badRequest().build();
-        }
+        return ResponseEntity.status(repositoryVerificationService.verify(potentialRepository.get())).build();
     }
 
     /**
-     * A method that verifies if a GitHub repository.
+     * A method that verifies the secrets of many repositories concurrently. The results are streamed as
+     * newline-delimited JSON, one line per repository, in the order in which the verifications finish. Each result
+     * holds the status code that {@link #verifyRepository(Long)} would return for the repository.
      *
-     * @param id the repository id, passed in the request path
-     * @return Response entity with response code 200 if the secrets are correct,
-     *         response entity with response code 400 if the repository type is not supported,
-     *         response entity with response code 404 if the repository is not found,
-     *         response entity with response code 503 if an error occurs while decrypting the secret,
-     *         response entity with response code of the response from the repository provider if the secret is wrong.
+     * @param request the ids of the repositories to verify, or a flag that all repositories should be verified,
+     *                passed in the request's body
+     * @return Response entity with response code 200 and body streaming the verification results,
+     *         response entity with response code 400 if neither ids nor the flag for all repositories are passed.
      */
-    private ResponseEntity<Void> verifyGitHubRepository(Repository repository) {
-        if (repository.getSecrets().size() > 1) {
+    @PostMapping("/verify")
+    public ResponseEntity<StreamingResponseBody> verifyRepositories(@RequestBody BulkVerificationRequestDTO request) {
+        if (!request.isAll() && (request.getIds() == null || request.getIds().isEmpty())) {
             return ResponseEntity.badRequest().build();
         }
 
-        String ownerAndName = repository.getUrl().substring(repository.getUrl().indexOf("github.com/") + 11);
-        String[] ownerAndNameSplit = ownerAndName.split("/", 2);
-
-        String gitHubApiUrl = "https://api.github.com/repos/" + ownerAndNameSplit[0] + "/" + ownerAndNameSplit[1];
-
-        HttpHeaders headers = new HttpHeaders();
-
-        if (repository.getSecrets().size() == 1) {
-            String token = repository.getSecrets().iterator().next().getSecretValue();
+        StreamingResponseBody body = outputStream -> {
             try {
-                token = EncryptionUtil.decrypt(token);
-            } catch (Exception e) {
-                return ResponseEntity.internalServerError().build();
+                repositoryVerificationService.verifyBulk(request, result -> {
+                    try {
+                        outputStream.write(objectMapper.writeValueAsBytes(result));
+                        outputStream.write('\n');
+                        outputStream.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+        };
 
-            headers.setBearerAuth(token);
-        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 
-        HttpEntity<String> requestEntity = new HttpEntity<>(headers);
+    /**
+     * A method that resolves the decrypted values of a repository's secrets, e.g. when a CI job starts. The request
+     * must carry the configured resolution token as a bearer token.
+     *
+     * @param id the repository's id, passed as a path variable
+     * @return Response entity with response code 200 and body containing the values by secret key,
+     *         response entity with response code 401 if the token is missing or wrong,
+     *         response entity with response code 404 if the repository does not exist,
+     *         response entity with response code 500 if an error occurs while decrypting a value.
+     */
+    @PostMapping("/{id}/secrets/resolve")
+    public ResponseEntity<Map<String, String>> resolveSecrets(@PathVariable Long id) {
+        return secretResolutionService.resolveSecrets(id);
+    }
 
-        try {
-            // Make the API call to GitHub to validate the token
-            ResponseEntity<String> response = restTemplate.exchange(
-                    gitHubApiUrl, HttpMethod.GET, requestEntity, String.class);
-
-            // If the response is OK (200), the token is valid
-            if (response.getStatusCode().is2xxSuccessful()) {
-                return ResponseEntity.ok().build();
-            } else {
-                return ResponseEntity.status(response.getStatusCode()).build();
-            }
-        } catch (HttpClientErrorException e) {
-            return ResponseEntity.status(e.getStatusCode()).build();
-        }
+    /**
+     * A method that resolves the decrypted values of the secrets of many repositories with a single query. The request
+     * must carry the configured resolution token as a bearer token.
+     *
+     * @param ids the repositories' ids, passed in the request's body
+     * @return Response entity with response code 200 and body containing the values by repository id and secret key,
+     *         and the ids of the repositories that do not exist,
+     *         response entity with response code 400 if there are no ids or more than the configured maximum,
+     *         response entity with response code 401 if the token is missing or wrong,
+     *         response entity with response code 500 if an error occurs while decrypting a value.
+     */
+    @PostMapping("/secrets/resolve")
+    public ResponseEntity<ResolvedSecretsDTO> resolveSecrets(@RequestBody List<Long> ids) {
+        return secretResolutionService.resolveSecrets(ids);
     }
 
     /**
@@ -158,7 +308,7 @@ public class RepositoryController {
      */
     @PutMapping("/{id}")
     public ResponseEntity<RepositoryDTO> updateRepository(@PathVariable Long id, @RequestBody RepositoryDTO repositoryDTO) {
-        Optional<Repository> potentialRepository = repositoryRepository.findById(id);
+        Optional<Repository> potentialRepository = repositoryRepository.findWithSecretsById(id);
         if (potentialRepository.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
@@ -167,36 +317,22 @@ public class RepositoryController {
         repository.setUrl(repositoryDTO.getUrl());
 
         repositoryRepository.save(repository);
+        verificationCache.invalidate(id);
+        applicationEventPublisher.publishEvent(new ChangeEvent().changed(repository));
 
         return ResponseEntity.ok(RepositoryDTO.toDTO(repository));
     }
 
     /**
-     * A method that deletes a repository. The method also deletes all secrets associated with the deleted repository.
+     * A method that deletes a repository. The method also deletes all secrets associated with the deleted repository
+     * that are not used by other repositories.
      *
-     * @param id the secret's id, passed as a path variable
+     * @param id the repository's id, passed as a path variable
      * @return Response entity with response code 204 if the repository is successfully deleted,
-     *         response entity with response code 404 if the secret does not exist.
+     *         response entity with response code 404 if the repository does not exist.
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteRepository(@PathVariable Long id) {
-        Optional<Repository> potentialRepository = repositoryRepository.findById(id);
-        if (potentialRepository.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        secretRepository.findByRepositories(potentialRepository.get())
-                .forEach(secret -> {
-                    ResponseEntity<Void> response = secretService.deleteSecret(secret.getId(), potentialRepository.get().getId());
-                    if (response.getStatusCode() != HttpStatusCode.valueOf(204)) {
-                        System.out.println("Error: " + response.getStatusCode());
-                    } else {
-                        System.out.println("Ok");
-                    }
-                });
-
-        repositoryRepository.deleteById(id);
-
-        return ResponseEntity.noContent().build();
+        return repositoryService.deleteRepository(id);
     }
 }
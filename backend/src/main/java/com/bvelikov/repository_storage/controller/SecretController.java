@@ -1,6 +1,8 @@
 package com.bvelikov.repository_storage.controller;
 
 import com.bvelikov.repository_storage.dto.SecretDTO;
+import com.bvelikov.repository_storage.dto.SecretImportResultDTO;
+import com.bvelikov.repository_storage.dto.SecretPageDTO;
 import com.bvelikov.repository_storage.service.SecretService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -20,11 +22,22 @@ public class SecretController {
         return secretService.getAllSecrets();
     }
 
+    @GetMapping("/list/page")
+    public ResponseEntity<SecretPageDTO> getSecretPage(@RequestParam(required = false) Long after,
+                                                       @RequestParam(required = false) Integer size) {
+        return secretService.getSecretPage(after, size);
+    }
+
     @PostMapping("")
     public ResponseEntity<SecretDTO> saveSecret(@RequestBody SecretDTO secretDTO) {
         return secretService.saveSecret(secretDTO);
     }
 
+    @PostMapping("/import")
+    public ResponseEntity<List<SecretImportResultDTO>> importSecrets(@RequestBody List<SecretDTO> secretDTOs) {
+        return secretService.importSecrets(secretDTOs);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<SecretDTO> updateSecret(@PathVariable Long id,  @RequestBody SecretDTO secretDTO) {
         return secretService.updateSecret(id, secretDTO);
@@ -0,0 +1,25 @@
+package com.bvelikov.repository_storage.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkVerificationRequestDTO {
+    private List<Long> ids = new ArrayList<>();
+    private boolean all;
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    public void setAll(boolean all) {
+        this.all = all;
+    }
+}
@@ -0,0 +1,67 @@
+package com.bvelikov.repository_storage.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ChangesDTO {
+    private List<RepositoryDTO> repositories = new ArrayList<>();
+    private List<SecretDTO> secrets = new ArrayList<>();
+    private List<TombstoneDTO> deleted = new ArrayList<>();
+    private String nextToken;
+    private boolean hasMore;
+
+    /**
+     * @return The repositories that were created or changed, with all their secrets
+     */
+    public List<RepositoryDTO> getRepositories() {
+        return repositories;
+    }
+
+    public void setRepositories(List<RepositoryDTO> repositories) {
+        this.repositories = repositories;
+    }
+
+    /**
+     * @return The secrets that were created or changed
+     */
+    public List<SecretDTO> getSecrets() {
+        return secrets;
+    }
+
+    public void setSecrets(List<SecretDTO> secrets) {
+        this.secrets = secrets;
+    }
+
+    /**
+     * @return The repositories and secrets that were deleted
+     */
+    public List<TombstoneDTO> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<TombstoneDTO> deleted) {
+        this.deleted = deleted;
+    }
+
+    /**
+     * @return The token to pass with the next request for changes
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setNextToken(String nextToken) {
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * @return True if more changes are ready, so the next request should be sent right away
+     */
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
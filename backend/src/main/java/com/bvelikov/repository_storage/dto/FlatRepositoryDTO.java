@@ -0,0 +1,141 @@
+package com.bvelikov.repository_storage.dto;
+
+import com.bvelikov.repository_storage.model.RepositoryType;
+import com.bvelikov.repository_storage.repository.RepositoryListRow;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A repository with the ids and keys of its secrets, without nested secret objects. The secret at index <i>i</i> has
+ * the id <code>secretIds[i]</code> and the key <code>secretKeys[i]</code>.
+ */
+public class FlatRepositoryDTO {
+    private Long id;
+    private String url;
+    private RepositoryType repositoryType;
+    private String owner;
+    private String name;
+    private Integer healthStatus;
+    private Integer healthLatencyMillis;
+    private Instant healthCheckedAt;
+    private List<Long> secretIds = new ArrayList<>();
+    private List<String> secretKeys = new ArrayList<>();
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public RepositoryType getRepositoryType() {
+        return repositoryType;
+    }
+
+    public void setRepositoryType(RepositoryType repositoryType) {
+        this.repositoryType = repositoryType;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The status code of the last scheduled verification of the secrets, null if they were not verified yet
+     */
+    public Integer getHealthStatus() {
+        return healthStatus;
+    }
+
+    public void setHealthStatus(Integer healthStatus) {
+        this.healthStatus = healthStatus;
+    }
+
+    public Integer getHealthLatencyMillis() {
+        return healthLatencyMillis;
+    }
+
+    public void setHealthLatencyMillis(Integer healthLatencyMillis) {
+        this.healthLatencyMillis = healthLatencyMillis;
+    }
+
+    public Instant getHealthCheckedAt() {
+        return healthCheckedAt;
+    }
+
+    public void setHealthCheckedAt(Instant healthCheckedAt) {
+        this.healthCheckedAt = healthCheckedAt;
+    }
+
+    public List<Long> getSecretIds() {
+        return secretIds;
+    }
+
+    public void setSecretIds(List<Long> secretIds) {
+        this.secretIds = secretIds;
+    }
+
+    public List<String> getSecretKeys() {
+        return secretKeys;
+    }
+
+    public void setSecretKeys(List<String> secretKeys) {
+        this.secretKeys = secretKeys;
+    }
+
+    /**
+     * A method that maps the listing rows of repositories, as returned by
+     * {@link com.bvelikov.repository_storage.repository.RepositoryRepository#findAllListRows()}.
+     *
+     * @param rows the rows, ordered by repository id
+     * @return The repositories with their secrets' ids and keys, in the order of the rows
+     */
+    public static List<FlatRepositoryDTO> toDTOs(List<RepositoryListRow> rows) {
+        List<FlatRepositoryDTO> flatRepositoryDTOs = new ArrayList<>();
+        FlatRepositoryDTO flatRepositoryDTO = null;
+        for (RepositoryListRow row : rows) {
+            if (flatRepositoryDTO == null || !flatRepositoryDTO.getId().equals(row.id())) {
+                flatRepositoryDTO = new FlatRepositoryDTO();
+                flatRepositoryDTO.setId(row.id());
+                flatRepositoryDTO.setUrl(row.url());
+                flatRepositoryDTO.setRepositoryType(row.repositoryType());
+                flatRepositoryDTO.setOwner(row.owner());
+                flatRepositoryDTO.setName(row.name());
+                flatRepositoryDTO.setHealthStatus(row.healthStatus());
+                flatRepositoryDTO.setHealthLatencyMillis(row.healthLatencyMillis());
+                flatRepositoryDTO.setHealthCheckedAt(row.healthCheckedAt());
+                flatRepositoryDTOs.add(flatRepositoryDTO);
+            }
+
+            if (row.secretId() != null) {
+                flatRepositoryDTO.getSecretIds().add(row.secretId());
+                flatRepositoryDTO.getSecretKeys().add(row.secretKey());
+            }
+        }
+
+        return flatRepositoryDTOs;
+    }
+}
@@ -1,14 +1,28 @@
 package com.bvelikov.repository_storage.dto;
 
 import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.RepositoryType;
 import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryListRow;
+import com.bvelikov.repository_storage.repository.SecretListRow;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class RepositoryDTO {
     private Long id;
     private String url;
+    private RepositoryType repositoryType;
+    private String owner;
+    private String name;
+    private Integer healthStatus;
+    private Integer healthLatencyMillis;
+    private Instant healthCheckedAt;
     private Set<SecretDTO> secrets = new HashSet<>();
 
     public Long getId() {
@@ -27,6 +41,57 @@ public class RepositoryDTO {
         this.url = url;
     }
 
+    public RepositoryType getRepositoryType() {
+        return repositoryType;
+    }
+
+    public void setRepositoryType(RepositoryType repositoryType) {
+        this.repositoryType = repositoryType;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The status code of the last scheduled verification of the secrets, null if they were not verified yet
+     */
+    public Integer getHealthStatus() {
+        return healthStatus;
+    }
+
+    public void setHealthStatus(Integer healthStatus) {
+        this.healthStatus = healthStatus;
+    }
+
+    public Integer getHealthLatencyMillis() {
+        return healthLatencyMillis;
+    }
+
+    public void setHealthLatencyMillis(Integer healthLatencyMillis) {
+        this.healthLatencyMillis = healthLatencyMillis;
+    }
+
+    public Instant getHealthCheckedAt() {
+        return healthCheckedAt;
+    }
+
+    public void setHealthCheckedAt(Instant healthCheckedAt) {
+        this.healthCheckedAt = healthCheckedAt;
+    }
+
     public Set<SecretDTO> getSecrets() {
         return secrets;
     }
@@ -51,6 +116,12 @@ public class RepositoryDTO {
         RepositoryDTO repositoryDTO = new RepositoryDTO();
         repositoryDTO.setId(repository.getId());
         repositoryDTO.setUrl(repository.getUrl());
+        repositoryDTO.setRepositoryType(repository.getRepositoryType());
+        repositoryDTO.setOwner(repository.getOwner());
+        repositoryDTO.setName(repository.getName());
+        repositoryDTO.setHealthStatus(repository.getHealthStatus());
+        repositoryDTO.setHealthLatencyMillis(repository.getHealthLatencyMillis());
+        repositoryDTO.setHealthCheckedAt(repository.getHealthCheckedAt());
 
         Set<SecretDTO> secretsDTO = new HashSet<>();
         repository.getSecrets().forEach(secret -> secretsDTO.add(SecretDTO.toDTO(secret, repository.getId())));
@@ -58,4 +129,56 @@ public class RepositoryDTO {
 
         return repositoryDTO;
     }
+
+    /**
+     * A method that maps the listing rows of repositories, as returned by
+     * {@link com.bvelikov.repository_storage.repository.RepositoryRepository#findAllListRows()}.
+     *
+     * @param rows the rows, ordered by repository id
+     * @return The repositories with their secrets' ids and keys, in the order of the rows
+     */
+    public static List<RepositoryDTO> toDTOs(List<RepositoryListRow> rows) {
+        List<RepositoryDTO> repositoryDTOs = new ArrayList<>();
+        forEachDTO(rows, repositoryDTOs::add);
+
+        return repositoryDTOs;
+    }
+
+    /**
+     * A method that maps the listing rows of repositories one repository at a time, so the rows can be read from a
+     * stream. A repository is passed to the action as soon as all of its rows were read.
+     *
+     * @param rows the rows, ordered by repository id
+     * @param action the action to be performed for each repository, in the order of the rows
+     */
+    public static void forEachDTO(Iterable<RepositoryListRow> rows, Consumer<RepositoryDTO> action) {
+        RepositoryDTO repositoryDTO = null;
+        for (RepositoryListRow row : rows) {
+            if (repositoryDTO == null || !repositoryDTO.getId().equals(row.id())) {
+                if (repositoryDTO != null) {
+                    action.accept(repositoryDTO);
+                }
+
+                repositoryDTO = new RepositoryDTO();
+                repositoryDTO.setId(row.id());
+                repositoryDTO.setUrl(row.url());
+                repositoryDTO.setRepositoryType(row.repositoryType());
+                repositoryDTO.setOwner(row.owner());
+                repositoryDTO.setName(row.name());
+                repositoryDTO.setHealthStatus(row.healthStatus());
+                repositoryDTO.setHealthLatencyMillis(row.healthLatencyMillis());
+                repositoryDTO.setHealthCheckedAt(row.healthCheckedAt());
+                repositoryDTO.setSecrets(new LinkedHashSet<>());
+            }
+
+            if (row.secretId() != null) {
+                repositoryDTO.getSecrets().add(SecretDTO.toDTO(new SecretListRow(row.secretId(), row.secretKey()),
+                        row.id()));
+            }
+        }
+
+        if (repositoryDTO != null) {
+            action.accept(repositoryDTO);
+        }
+    }
 }
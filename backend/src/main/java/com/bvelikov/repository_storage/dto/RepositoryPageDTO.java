@@ -0,0 +1,25 @@
+package com.bvelikov.repository_storage.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RepositoryPageDTO {
+    private List<RepositoryDTO> repositories = new ArrayList<>();
+    private Long nextCursor;
+
+    public List<RepositoryDTO> getRepositories() {
+        return repositories;
+    }
+
+    public void setRepositories(List<RepositoryDTO> repositories) {
+        this.repositories = repositories;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,73 @@
+package com.bvelikov.repository_storage.dto;
+
+import com.bvelikov.repository_storage.model.RepositoryType;
+
+/**
+ * The filters of a repository search. Filters that are not set are not applied.
+ */
+public class RepositorySearchDTO {
+    /**
+     * The way in which the url filter is matched against repository urls.
+     */
+    public enum UrlMatch {
+        /**
+         * The url is equal to the filter.
+         */
+        EXACT,
+        /**
+         * The url starts with the filter. Served by the unique index on the url.
+         */
+        PREFIX,
+        /**
+         * The url contains the filter. No index can serve it, so every url in the rest of the filtered range has to
+         * be checked. It has to be requested explicitly.
+         */
+        CONTAINS
+    }
+
+    private String url;
+    private UrlMatch match = UrlMatch.PREFIX;
+    private RepositoryType type;
+    private String owner;
+    private String secretKey;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public UrlMatch getMatch() {
+        return match;
+    }
+
+    public void setMatch(UrlMatch match) {
+        this.match = match;
+    }
+
+    public RepositoryType getType() {
+        return type;
+    }
+
+    public void setType(RepositoryType type) {
+        this.type = type;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getSecretKey() {
+        return secretKey;
+    }
+
+    public void setSecretKey(String secretKey) {
+        this.secretKey = secretKey;
+    }
+}
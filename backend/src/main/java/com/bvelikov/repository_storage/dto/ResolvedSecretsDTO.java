@@ -0,0 +1,33 @@
+package com.bvelikov.repository_storage.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ResolvedSecretsDTO {
+    private Map<Long, Map<String, String>> repositories = new LinkedHashMap<>();
+    private List<Long> notFound = new ArrayList<>();
+
+    /**
+     * @return The decrypted secret values of every repository, by repository id and secret key
+     */
+    public Map<Long, Map<String, String>> getRepositories() {
+        return repositories;
+    }
+
+    public void setRepositories(Map<Long, Map<String, String>> repositories) {
+        this.repositories = repositories;
+    }
+
+    /**
+     * @return The ids of the requested repositories that do not exist
+     */
+    public List<Long> getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(List<Long> notFound) {
+        this.notFound = notFound;
+    }
+}
@@ -1,6 +1,7 @@
 package com.bvelikov.repository_storage.dto;
 
 import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.SecretListRow;
 
 public class SecretDTO {
     private Long id;
@@ -58,4 +59,14 @@ public class SecretDTO {
 
         return secretDTO;
     }
+
+    public static SecretDTO toDTO(SecretListRow secretListRow, Long repositoryId) {
+        SecretDTO secretDTO = new SecretDTO();
+        secretDTO.setId(secretListRow.id());
+        secretDTO.setSecretKey(secretListRow.secretKey());
+        secretDTO.setSecretValue(null);
+        secretDTO.setRepositoryId(repositoryId);
+
+        return secretDTO;
+    }
 }
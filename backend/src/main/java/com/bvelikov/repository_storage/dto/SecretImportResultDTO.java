@@ -0,0 +1,62 @@
+package com.bvelikov.repository_storage.dto;
+
+public class SecretImportResultDTO {
+    private int index;
+    private Long id;
+    private Long repositoryId;
+    private String secretKey;
+    private int status;
+
+    public SecretImportResultDTO() {
+    }
+
+    public SecretImportResultDTO(int index, SecretDTO secretDTO, int status) {
+        this.index = index;
+        this.repositoryId = secretDTO.getRepositoryId();
+        this.secretKey = secretDTO.getSecretKey();
+        this.status = status;
+    }
+
+    /**
+     * @return The position of the secret in the import request
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getRepositoryId() {
+        return repositoryId;
+    }
+
+    public void setRepositoryId(Long repositoryId) {
+        this.repositoryId = repositoryId;
+    }
+
+    public String getSecretKey() {
+        return secretKey;
+    }
+
+    public void setSecretKey(String secretKey) {
+        this.secretKey = secretKey;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,25 @@
+package com.bvelikov.repository_storage.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SecretPageDTO {
+    private List<SecretDTO> secrets = new ArrayList<>();
+    private Long nextCursor;
+
+    public List<SecretDTO> getSecrets() {
+        return secrets;
+    }
+
+    public void setSecrets(List<SecretDTO> secrets) {
+        this.secrets = secrets;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
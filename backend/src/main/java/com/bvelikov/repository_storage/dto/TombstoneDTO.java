@@ -0,0 +1,35 @@
+package com.bvelikov.repository_storage.dto;
+
+import com.bvelikov.repository_storage.model.Tombstone;
+
+public class TombstoneDTO {
+    private Tombstone.EntityType entityType;
+    private Long id;
+
+    public Tombstone.EntityType getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(Tombstone.EntityType entityType) {
+        this.entityType = entityType;
+    }
+
+    /**
+     * @return The id of the deleted repository or secret
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public static TombstoneDTO toDTO(Tombstone tombstone) {
+        TombstoneDTO tombstoneDTO = new TombstoneDTO();
+        tombstoneDTO.setEntityType(tombstone.getEntityType());
+        tombstoneDTO.setId(tombstone.getEntityId());
+
+        return tombstoneDTO;
+    }
+}
@@ -0,0 +1,30 @@
+package com.bvelikov.repository_storage.dto;
+
+public class VerificationResultDTO {
+    private Long repositoryId;
+    private int status;
+
+    public VerificationResultDTO() {
+    }
+
+    public VerificationResultDTO(Long repositoryId, int status) {
+        this.repositoryId = repositoryId;
+        this.status = status;
+    }
+
+    public Long getRepositoryId() {
+        return repositoryId;
+    }
+
+    public void setRepositoryId(Long repositoryId) {
+        this.repositoryId = repositoryId;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,20 @@
+package com.bvelikov.repository_storage.model;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Timestamps of changes, used as the position of a row in the change feed.
+ */
+public final class ChangeTimestamps {
+    private ChangeTimestamps() {
+    }
+
+    /**
+     * @return The current time, truncated to the microseconds that the database stores, so the timestamp of a row
+     *         read back from the database is the same as the one it was written with
+     */
+    public static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
@@ -1,11 +1,20 @@
 package com.bvelikov.repository_storage.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.time.Instant;
 import java.util.Set;
 
 @Entity
-@Table(name = "repositories")
+@Table(name = "repositories", indexes = {
+        @Index(name = "idx_repositories_provider", columnList = "provider, id"),
+        @Index(name = "idx_repositories_owner_name", columnList = "owner, name"),
+        @Index(name = "idx_repositories_updated_at", columnList = "updated_at, id"),
+        @Index(name = "idx_repositories_health_due_at", columnList = "health_due_at, id")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Repository {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -14,7 +23,43 @@ public class Repository {
     @Column(nullable = false, unique = true)
     private String url;
 
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private RepositoryType provider;
+
+    private String owner;
+
+    private String name;
+
+    /**
+     * The time of the last change of the repository or of the secrets it has, used by the change feed.
+     */
+    private Instant updatedAt;
+
+    /**
+     * The status code of the last scheduled verification of the repository's secrets, null if it was not verified
+     * yet.
+     */
+    private Integer healthStatus;
+
+    /**
+     * How long the last scheduled verification took, in milliseconds.
+     */
+    private Integer healthLatencyMillis;
+
+    /**
+     * The time of the last scheduled verification.
+     */
+    private Instant healthCheckedAt;
+
+    /**
+     * The time of the next scheduled verification. Null if the repository was not verified since it was created or
+     * changed, so it is verified before all others.
+     */
+    private Instant healthDueAt;
+
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(
             name = "repository_secrets",
             joinColumns = @JoinColumn(name = "repository_id"),
@@ -46,29 +91,74 @@ public class Repository {
         this.secrets = secrets;
     }
 
+    /**
+     * @return The provider hosting the repository. The value stored with the repository is returned if it exists,
+     *         otherwise it is detected from the url.
+     */
     public RepositoryType getRepositoryType() {
-        String actualUrl = url;
-        if (actualUrl.startsWith("http://")) {
-            actualUrl = actualUrl.substring(7);
-        } else if (actualUrl.startsWith("https://")) {
-            actualUrl = actualUrl.substring(8);
-        } else if (actualUrl.startsWith("git@")) {
-            // SSH
-            actualUrl = actualUrl.substring(4);
-        }
-
-        if (actualUrl.startsWith("github.com")) {
-            return RepositoryType.GIT_HUB;
-        }
-
-        if (actualUrl.startsWith("gitlab.com")) {
-            return RepositoryType.GIT_LAB;
-        }
-
-        if (actualUrl.startsWith("bitbucket.org")) {
-            return RepositoryType.BIT_BUCKET;
-        }
-
-        return null;
+        return provider != null ? provider : RepositoryType.fromUrl(url);
+    }
+
+    /**
+     * @return The provider, owner and name of the repository. The values stored with the repository are returned if
+     *         they exist, otherwise they are parsed from the url.
+     */
+    public RepositoryCoordinates getCoordinates() {
+        return provider != null ? new RepositoryCoordinates(provider, owner, name) : RepositoryCoordinates.parse(url);
+    }
+
+    /**
+     * @return The owner of the repository in lower case, null if it is not known
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return The name of the repository in lower case, null if it is not known
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Integer getHealthStatus() {
+        return healthStatus;
+    }
+
+    public Integer getHealthLatencyMillis() {
+        return healthLatencyMillis;
+    }
+
+    public Instant getHealthCheckedAt() {
+        return healthCheckedAt;
+    }
+
+    /**
+     * A method that marks the repository as changed, when only the secrets it has changed. Changes of the secrets
+     * collection do not update the repository row by themselves. The repository is verified again before all others.
+     */
+    public void markChanged() {
+        updatedAt = ChangeTimestamps.now();
+        healthDueAt = null;
+    }
+
+    /**
+     * The provider, owner and name are stored with the repository, so repositories can be filtered and grouped by
+     * them in the database. They are computed from the url whenever the repository is written, after which the
+     * repository is verified again before all others.
+     */
+    @PrePersist
+    @PreUpdate
+    void updateCoordinates() {
+        RepositoryCoordinates coordinates = RepositoryCoordinates.parse(url);
+        provider = coordinates.provider();
+        owner = coordinates.owner();
+        name = coordinates.name();
+        updatedAt = ChangeTimestamps.now();
+        healthDueAt = null;
     }
 }
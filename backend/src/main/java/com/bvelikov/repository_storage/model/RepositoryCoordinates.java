@@ -0,0 +1,54 @@
+package com.bvelikov.repository_storage.model;
+
+import java.util.Locale;
+
+/**
+ * The provider, owner and name of a repository, parsed from its url. The owner and name are lower case, because
+ * the supported providers do not distinguish between cases in repository paths.
+ *
+ * @param provider the provider hosting the repository, null if it is not supported
+ * @param owner the owner of the repository, including any subgroups, e.g. <i>group/subgroup</i>
+ * @param name the name of the repository, without a <i>.git</i> suffix
+ */
+public record RepositoryCoordinates(RepositoryType provider, String owner, String name) {
+    private static final RepositoryCoordinates UNKNOWN = new RepositoryCoordinates(null, null, null);
+
+    /**
+     * A method that parses a repository url. Both HTTP(S) urls (<i>https://github.com/owner/name</i>) and SSH urls
+     * (<i>git@github.com:owner/name.git</i>) are supported.
+     *
+     * @param url the repository url
+     * @return The coordinates of the repository. The owner and name are null if the url does not contain a
+     *         repository path, all values are null if the provider is not supported.
+     */
+    public static RepositoryCoordinates parse(String url) {
+        RepositoryType provider = RepositoryType.fromUrl(url);
+        if (provider == null) {
+            return UNKNOWN;
+        }
+
+        String host = provider.getHost();
+        int separatorIndex = url.indexOf(host) + host.length();
+        if (url.length() <= separatorIndex
+                || (url.charAt(separatorIndex) != '/' && url.charAt(separatorIndex) != ':')) {
+            return new RepositoryCoordinates(provider, null, null);
+        }
+
+        String path = url.substring(separatorIndex + 1);
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (path.endsWith(".git")) {
+            path = path.substring(0, path.length() - 4);
+        }
+
+        int nameIndex = path.lastIndexOf('/');
+        if (nameIndex <= 0 || nameIndex == path.length() - 1) {
+            return new RepositoryCoordinates(provider, null, null);
+        }
+
+        return new RepositoryCoordinates(provider,
+                path.substring(0, nameIndex).toLowerCase(Locale.ROOT),
+                path.substring(nameIndex + 1).toLowerCase(Locale.ROOT));
+    }
+}
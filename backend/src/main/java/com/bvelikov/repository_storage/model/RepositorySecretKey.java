@@ -0,0 +1,81 @@
+package com.bvelikov.repository_storage.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A secret key that is taken in a repository. The primary key makes a secret key unique within a repository, and
+ * serves lookups by repository and key. The rows of a repository are deleted by the database together with the
+ * repository.
+ */
+@Entity
+@Table(name = "repository_secret_keys")
+public class RepositorySecretKey {
+    @EmbeddedId
+    private Key key;
+
+    @MapsId("repositoryId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Repository repository;
+
+    public Key getKey() {
+        return key;
+    }
+
+    public void setKey(Key key) {
+        this.key = key;
+    }
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    public void setRepository(Repository repository) {
+        this.repository = repository;
+    }
+
+    @Embeddable
+    public static class Key implements Serializable {
+        private Long repositoryId;
+
+        @Column(nullable = false)
+        private String secretKey;
+
+        public Long getRepositoryId() {
+            return repositoryId;
+        }
+
+        public void setRepositoryId(Long repositoryId) {
+            this.repositoryId = repositoryId;
+        }
+
+        public String getSecretKey() {
+            return secretKey;
+        }
+
+        public void setSecretKey(String secretKey) {
+            this.secretKey = secretKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(repositoryId, key.repositoryId) && Objects.equals(secretKey, key.secretKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(repositoryId, secretKey);
+        }
+    }
+}
@@ -1,7 +1,50 @@
 package com.bvelikov.repository_storage.model;
 
 public enum RepositoryType {
-    GIT_HUB,
-    GIT_LAB,
-    BIT_BUCKET
+    GIT_HUB("github.com"),
+    GIT_LAB("gitlab.com"),
+    BIT_BUCKET("bitbucket.org");
+
+    private final String host;
+
+    RepositoryType(String host) {
+        this.host = host;
+    }
+
+    /**
+     * @return The host of the provider in repository urls, e.g. <i>github.com</i>
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * A method that detects the provider hosting a repository from its url.
+     *
+     * @param url the repository url
+     * @return The repository type, or null if the url does not point to a supported provider
+     */
+    public static RepositoryType fromUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+
+        String actualUrl = url;
+        if (actualUrl.startsWith("http://")) {
+            actualUrl = actualUrl.substring(7);
+        } else if (actualUrl.startsWith("https://")) {
+            actualUrl = actualUrl.substring(8);
+        } else if (actualUrl.startsWith("git@")) {
+            // SSH
+            actualUrl = actualUrl.substring(4);
+        }
+
+        for (RepositoryType repositoryType : values()) {
+            if (actualUrl.startsWith(repositoryType.host)) {
+                return repositoryType;
+            }
+        }
+
+        return null;
+    }
 }
@@ -1,25 +1,66 @@
 package com.bvelikov.repository_storage.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "secrets")
+@Table(name = "secrets", indexes = {
+        @Index(name = "idx_secrets_secret_key", columnList = "secret_key"),
+        @Index(name = "idx_secrets_updated_at", columnList = "updated_at, id")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Secret {
+    /**
+     * The number of ids reserved with a single update of the id generator table. Ids are not generated by the
+     * database on insert, so secrets can be inserted in JDBC batches.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    public static final String ID_GENERATOR_TABLE = "id_generators";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "secret_ids")
+    @TableGenerator(name = "secret_ids", table = ID_GENERATOR_TABLE, pkColumnName = "name",
+            valueColumnName = "next_val", pkColumnValue = "secrets", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
     private String secretKey;
 
-    @Column(nullable = false)
+    /**
+     * The value encrypted with AES-CBC and Base64 encoded, as it was stored before the encrypted value column. Null
+     * for values stored in the encrypted value column.
+     */
     private String secretValue;
 
+    /**
+     * The encrypted value in the format of {@link com.bvelikov.repository_storage.security.encryption.SecretCodec}.
+     */
+    @Column(length = 4096)
+    private byte[] encryptedValue;
+
+    /**
+     * The key the value is encrypted with, wrapped by the master key. Null for values encrypted with the legacy key.
+     */
+    private String dataKey;
+
+    /**
+     * The version of the master key that wrapped the data key.
+     */
+    private Integer keyVersion;
+
+    /**
+     * The time of the last change of the secret, used by the change feed.
+     */
+    private Instant updatedAt;
+
     @ManyToMany(mappedBy = "secrets")
-    private Set<Repository> repositories = new HashSet<>();;
+    private Set<Repository> repositories = new HashSet<>();
 
     public Long getId() {
         return id;
@@ -45,6 +86,30 @@ public class Secret {
         this.secretValue = secretValue;
     }
 
+    public byte[] getEncryptedValue() {
+        return encryptedValue;
+    }
+
+    public void setEncryptedValue(byte[] encryptedValue) {
+        this.encryptedValue = encryptedValue;
+    }
+
+    public String getDataKey() {
+        return dataKey;
+    }
+
+    public void setDataKey(String dataKey) {
+        this.dataKey = dataKey;
+    }
+
+    public Integer getKeyVersion() {
+        return keyVersion;
+    }
+
+    public void setKeyVersion(Integer keyVersion) {
+        this.keyVersion = keyVersion;
+    }
+
     public Set<Repository> getRepositories() {
         return repositories;
     }
@@ -52,4 +117,14 @@ public class Secret {
     public void setRepositories(Set<Repository> repositories) {
         this.repositories = repositories;
     }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateTimestamp() {
+        updatedAt = ChangeTimestamps.now();
+    }
 }
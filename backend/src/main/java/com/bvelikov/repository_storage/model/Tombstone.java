@@ -0,0 +1,57 @@
+package com.bvelikov.repository_storage.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A record of a deleted repository or secret. Tombstones are read by the change feed, so clients that keep a copy of
+ * the data learn about deletions without listing all rows.
+ */
+@Entity
+@Table(name = "tombstones", indexes = @Index(name = "idx_tombstones_deleted_at", columnList = "deleted_at, id"))
+public class Tombstone {
+    public enum EntityType {
+        REPOSITORY,
+        SECRET
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EntityType entityType;
+
+    @Column(nullable = false)
+    private Long entityId;
+
+    @Column(nullable = false)
+    private Instant deletedAt;
+
+    public Tombstone() {
+    }
+
+    public Tombstone(EntityType entityType, Long entityId, Instant deletedAt) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.deletedAt = deletedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+}
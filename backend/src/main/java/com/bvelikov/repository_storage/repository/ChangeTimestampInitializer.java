@@ -0,0 +1,42 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.model.ChangeTimestamps;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+
+/**
+ * This class sets the change time of the repositories and secrets that were saved before changes were tracked, when
+ * the application starts. They are reported by the change feed once, as changed at startup.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class ChangeTimestampInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeTimestampInitializer.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void initialize() {
+        Timestamp now = Timestamp.from(ChangeTimestamps.now());
+        for (String table : new String[]{"repositories", "secrets"}) {
+            Integer updated = transactionTemplate.execute(status -> jdbcTemplate.update(
+                    "update " + table + " set updated_at = ? where updated_at is null", now));
+
+            if (updated != null && updated > 0) {
+                logger.info("Set the change time of {} rows of {}", updated, table);
+            }
+        }
+    }
+}
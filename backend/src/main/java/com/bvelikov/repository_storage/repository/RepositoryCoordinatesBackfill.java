@@ -0,0 +1,140 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.model.ChangeTimestamps;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.RepositoryCoordinates;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>This class stores the provider, owner and name of the repositories that were saved before these values became
+ * columns. It runs in the background once the application is ready.</p>
+ *
+ * <p>Repositories are read in chunks ordered by id, and each chunk is updated in a separate short transaction that
+ * only locks the rows of the chunk, with a pause between chunks. The job starts over from the rows that are still
+ * missing their provider, so it resumes after a restart. A row whose url has a provider but no owner, such as
+ * <i>https://github.com/</i>, is done once its provider is stored, so it is not updated again on every start. A row
+ * is only updated if its url did not change since it was read, so a concurrent edit is never overwritten. Updated rows
+ * get a new change time, so the change feed reports them.</p>
+ */
+@Component
+public class RepositoryCoordinatesBackfill {
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryCoordinatesBackfill.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Value("${repository-storage.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${repository-storage.backfill.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${repository-storage.backfill.pause:100ms}")
+    private Duration pause;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (enabled) {
+            taskExecutor.execute(this::backfill);
+        }
+    }
+
+    /**
+     * A method that fills the missing values of all repositories, chunk by chunk.
+     *
+     * @return The number of updated repositories
+     */
+    public int backfill() {
+        int updated = 0;
+        long cursor = 0L;
+        try {
+            while (true) {
+                long after = cursor;
+                List<Long> ids = new ArrayList<>();
+                int chunkUpdated = transactionTemplate.execute(status -> updateChunk(after, ids));
+                if (chunkUpdated > 0) {
+                    evictCachedRepositories();
+                    updated += chunkUpdated;
+                }
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+
+                cursor = ids.get(ids.size() - 1);
+                Thread.sleep(pause.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Repository backfill stopped after {} repositories", updated, e);
+        }
+
+        if (updated > 0) {
+            logger.info("Repository backfill updated {} repositories", updated);
+        }
+        return updated;
+    }
+
+    private int updateChunk(long after, List<Long> ids) {
+        List<Object[]> arguments = new ArrayList<>();
+        Timestamp now = Timestamp.from(ChangeTimestamps.now());
+
+        jdbcTemplate.query("select id, url from repositories where provider is null and id > ? "
+                        + "order by id limit ?",
+                resultSet -> {
+                    long id = resultSet.getLong("id");
+                    String url = resultSet.getString("url");
+                    ids.add(id);
+
+                    RepositoryCoordinates coordinates = RepositoryCoordinates.parse(url);
+                    if (coordinates.provider() != null) {
+                        arguments.add(new Object[]{coordinates.provider().name(), coordinates.owner(),
+                                coordinates.name(), now, id, url});
+                    }
+                }, after, chunkSize);
+
+        if (arguments.isEmpty()) {
+            return 0;
+        }
+
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate("update repositories set provider = ?, owner = ?, name = ?, "
+                + "updated_at = ? where id = ? and url = ? and provider is null", arguments)) {
+            // The driver may report batched statements without a row count
+            updated += count < 0 ? 1 : count;
+        }
+
+        return updated;
+    }
+
+    // The rows were changed without Hibernate, so cached repositories and query results are stale
+    private void evictCachedRepositories() {
+        org.hibernate.Cache cache = entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class);
+        cache.evictEntityData(Repository.class);
+        cache.evictQueryRegions();
+    }
+}
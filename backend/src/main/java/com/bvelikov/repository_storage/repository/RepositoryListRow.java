@@ -0,0 +1,31 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.model.RepositoryType;
+
+import java.time.Instant;
+
+/**
+ * A repository's listed columns together with the id and key of one of its secrets. A repository has one row per
+ * secret, or a single row without a secret if it has no secrets.
+ *
+ * @param id the repository id
+ * @param url the repository url
+ * @param provider the stored provider, null if it was not computed yet
+ * @param owner the repository owner
+ * @param name the repository name
+ * @param healthStatus the status code of the last scheduled verification, null if it was not verified yet
+ * @param healthLatencyMillis how long the last scheduled verification took, in milliseconds
+ * @param healthCheckedAt the time of the last scheduled verification
+ * @param secretId the secret id, null for a repository without secrets
+ * @param secretKey the secret key, null for a repository without secrets
+ */
+public record RepositoryListRow(Long id, String url, RepositoryType provider, String owner, String name,
+                                Integer healthStatus, Integer healthLatencyMillis, Instant healthCheckedAt,
+                                Long secretId, String secretKey) {
+    /**
+     * @return The provider hosting the repository, detected from the url if it is not stored
+     */
+    public RepositoryType repositoryType() {
+        return provider != null ? provider : RepositoryType.fromUrl(url);
+    }
+}
@@ -1,9 +1,228 @@
 package com.bvelikov.repository_storage.repository;
 
 import com.bvelikov.repository_storage.model.Repository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @org.springframework.stereotype.Repository
-public interface RepositoryRepository extends JpaRepository<Repository, Long> { }
+public interface RepositoryRepository extends JpaRepository<Repository, Long>, RepositorySearchRepository {
+    /**
+     * A method that returns a repository together with its secrets, loaded in a single query.
+     *
+     * @param id the repository id
+     * @return The repository with initialized secrets, or an empty optional if it does not exist
+     */
+    @EntityGraph(attributePaths = "secrets")
+    Optional<Repository> findWithSecretsById(Long id);
+
+    /**
+     * A method that returns the listed columns of all repositories, including their health, and the ids and keys of
+     * their secrets, loaded in a single query. No entities are loaded, so the rows are not tracked by the persistence
+     * context, and the secrets' values are not read. The result is kept in the query cache until the repositories or
+     * their secrets change.
+     *
+     * @return A row per repository and secret, ordered by repository id and secret id
+     */
+    @Query("select new com.bvelikov.repository_storage.repository.RepositoryListRow("
+            + "r.id, r.url, r.provider, r.owner, r.name, r.healthStatus, r.healthLatencyMillis, r.healthCheckedAt, "
+            + "s.id, s.secretKey) "
+            + "from Repository r left join r.secrets s order by r.id, s.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<RepositoryListRow> findAllListRows();
+
+    /**
+     * A method that returns the ids of the page of repositories following a cursor, ordered by id. The page itself
+     * is loaded with {@link #findWithSecretsByIdIn(Collection, Sort)}, because limiting a query that fetches a
+     * collection would be applied in memory. The result is kept in the query cache until the repositories change.
+     *
+     * @param id the cursor - only repositories with an id greater than this value are returned
+     * @param limit the maximum number of repositories to return
+     * @return The ids of the repositories following the cursor
+     */
+    @Query("select r.id from Repository r where r.id > :id order by r.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Long> findIdsByIdGreaterThan(Long id, Limit limit);
+
+    /**
+     * A method that returns the ids of the repositories that are due for a scheduled verification. Repositories that
+     * were not verified since they were created or changed come first, followed by the others in the order in which
+     * they became due. The order is the order of the <i>health_due_at, id</i> index, so the rows are not sorted.
+     *
+     * @param now the current time
+     * @param limit the maximum number of ids to return
+     * @return The ids of the repositories to verify next
+     */
+    @Query("select r.id from Repository r where r.healthDueAt is null or r.healthDueAt <= :now "
+            + "order by r.healthDueAt nulls first, r.id")
+    List<Long> findIdsDueForVerification(Instant now, Limit limit);
+
+    /**
+     * A method that returns the repositories with the given ids together with their secrets, loaded in a single query.
+     * The result is kept in the query cache until the repositories or their secrets change.
+     *
+     * @param ids the repository ids
+     * @param sort the order of the returned repositories
+     * @return The repositories with initialized secrets
+     */
+    @EntityGraph(attributePaths = "secrets")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Repository> findWithSecretsByIdIn(Collection<Long> ids, Sort sort);
+
+    /**
+     * A method that returns the secrets of the repositories with the given ids, loaded in a single query. A repository
+     * without secrets is returned once without a secret, and repositories that do not exist are not returned.
+     *
+     * @param ids the repository ids
+     * @return The secrets of the repositories, ordered by repository id and secret id
+     */
+    @Query("select new com.bvelikov.repository_storage.repository.RepositorySecret(r.id, s) "
+            + "from Repository r left join r.secrets s where r.id in :ids order by r.id, s.id")
+    List<RepositorySecret> findSecretsByRepositoryIdIn(Collection<Long> ids);
+
+    /**
+     * A method that streams the listing rows of all repositories, as returned by {@link #findAllListRows()}. The rows
+     * are not managed by the persistence context, so they can be released as soon as they are written. The stream
+     * must be consumed inside a transaction and closed afterwards.
+     *
+     * @return A stream of a row per repository and secret, ordered by repository id and secret id
+     */
+    @Query("select new com.bvelikov.repository_storage.repository.RepositoryListRow("
+            + "r.id, r.url, r.provider, r.owner, r.name, r.healthStatus, r.healthLatencyMillis, r.healthCheckedAt, "
+            + "s.id, s.secretKey) "
+            + "from Repository r left join r.secrets s order by r.id, s.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<RepositoryListRow> streamAllListRows();
+
+    /**
+     * A method that returns the listing rows of a single repository, as returned by {@link #findAllListRows()}.
+     *
+     * @param id the repository id
+     * @return A row per secret of the repository, ordered by secret id, empty if the repository does not exist
+     */
+    @Query("select new com.bvelikov.repository_storage.repository.RepositoryListRow("
+            + "r.id, r.url, r.provider, r.owner, r.name, r.healthStatus, r.healthLatencyMillis, r.healthCheckedAt, "
+            + "s.id, s.secretKey) "
+            + "from Repository r left join r.secrets s where r.id = :id order by s.id")
+    List<RepositoryListRow> findListRowsById(Long id);
+
+    /**
+     * A method that checks if a repository has a secret, without loading the repository's secrets.
+     *
+     * @param id the repository id
+     * @param secretId the secret id
+     * @return True if the secret is added to the repository, false otherwise
+     */
+    @Query("select count(s) > 0 from Repository r join r.secrets s where r.id = :id and s.id = :secretId")
+    boolean hasSecret(Long id, Long secretId);
+
+    /**
+     * A method that adds a secret to a repository without loading the repository's secrets. The cached secrets of
+     * repositories are evicted from the second-level cache. Secrets are added through
+     * {@link RepositorySecretKeys#addSecret(Long, Long, String)}, which takes the secret's key as well.
+     *
+     * @param id the repository id
+     * @param secretId the secret id
+     * @return The number of added rows
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "repository_secrets"))
+    @Query(value = "insert into repository_secrets (repository_id, secret_id) values (:id, :secretId)",
+            nativeQuery = true)
+    int insertSecret(Long id, Long secretId);
+
+    /**
+     * A method that removes a secret from a repository without loading the repository's secrets. The cached secrets
+     * of repositories are evicted from the second-level cache. Secrets are removed through
+     * {@link RepositorySecretKeys#removeSecret(Long, Long, String)}, which releases the secret's key as well.
+     *
+     * @param id the repository id
+     * @param secretId the secret id
+     * @return The number of removed rows
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "repository_secrets"))
+    @Query(value = "delete from repository_secrets where repository_id = :id and secret_id = :secretId",
+            nativeQuery = true)
+    int deleteSecret(Long id, Long secretId);
+
+    /**
+     * A method that stores the result of a scheduled verification without a new change time, if the repository did
+     * not change since it was read. Hibernate evicts the cached repositories and invalidates the cached queries
+     * reading them.
+     *
+     * @param id the repository id
+     * @param updatedAt the change time of the verified repository
+     * @param status the status code of the verification
+     * @param latencyMillis how long the provider took to respond, in milliseconds
+     * @param checkedAt the time of the verification
+     * @param dueAt the time of the next verification
+     * @return The number of updated repositories
+     */
+    @Modifying
+    @Query("update Repository r set r.healthStatus = :status, r.healthLatencyMillis = :latencyMillis, "
+            + "r.healthCheckedAt = :checkedAt, r.healthDueAt = :dueAt "
+            + "where r.id = :id and (r.updatedAt = :updatedAt or r.updatedAt is null)")
+    int updateHealth(Long id, Instant updatedAt, Integer status, Integer latencyMillis, Instant checkedAt,
+                     Instant dueAt);
+
+    /**
+     * A method that only postpones the next scheduled verification, if the repository did not change since it was
+     * read. Hibernate evicts the cached repositories and invalidates the cached queries reading them.
+     *
+     * @param id the repository id
+     * @param updatedAt the change time of the verified repository
+     * @param dueAt the time of the next verification
+     * @return The number of updated repositories
+     */
+    @Modifying
+    @Query("update Repository r set r.healthDueAt = :dueAt "
+            + "where r.id = :id and (r.updatedAt = :updatedAt or r.updatedAt is null)")
+    int updateHealthDueAt(Long id, Instant updatedAt, Instant dueAt);
+
+    /**
+     * A method that returns the ids of a repository's secrets, without loading the repository or its secrets.
+     *
+     * @param id the repository id
+     * @return The ids of the repository's secrets, empty if it has none or does not exist
+     */
+    @Query("select s.id from Repository r join r.secrets s where r.id = :id")
+    List<Long> findSecretIdsById(Long id);
+
+    /**
+     * A method that deletes a repository without loading it. Hibernate unlinks the repository's secrets with a single
+     * statement on the join table before it deletes the repository.
+     *
+     * @param id the repository id
+     * @return The number of deleted repositories
+     */
+    @Modifying
+    @Query("delete from Repository r where r.id = :id")
+    int deleteRepositoryById(Long id);
+
+    /**
+     * A method that returns the repositories changed after a position in the change feed, ordered by that position.
+     * Their secrets are not loaded.
+     *
+     * @param after the change time of the position
+     * @param id the repository id of the position
+     * @param until only repositories changed at or before this time are returned
+     * @param limit the maximum number of repositories to return
+     * @return The repositories following the position
+     */
+    @Query("select r from Repository r where r.updatedAt <= :until "
+            + "and (r.updatedAt > :after or (r.updatedAt = :after and r.id > :id)) order by r.updatedAt, r.id")
+    List<Repository> findChangedAfter(Instant after, Long id, Instant until, Limit limit);
+}
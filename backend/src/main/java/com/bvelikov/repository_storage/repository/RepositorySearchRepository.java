@@ -0,0 +1,22 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.dto.RepositorySearchDTO;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+/**
+ * Repository search queries, built from the filters that are set in the search.
+ */
+public interface RepositorySearchRepository {
+    /**
+     * A method that returns the ids of the page of repositories matching a search and following a cursor, ordered
+     * by id. The page itself is loaded with {@link RepositoryRepository#findWithSecretsByIdIn}.
+     *
+     * @param search the filters of the search
+     * @param id the cursor - only repositories with an id greater than this value are returned
+     * @param limit the maximum number of repositories to return
+     * @return The ids of the matching repositories following the cursor
+     */
+    List<Long> findIdsBySearch(RepositorySearchDTO search, Long id, Limit limit);
+}
@@ -0,0 +1,76 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.dto.RepositorySearchDTO;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+class RepositorySearchRepositoryImpl implements RepositorySearchRepository {
+    private static final char LIKE_ESCAPE = '\\';
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findIdsBySearch(RepositorySearchDTO search, Long id, Limit limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<Repository> repository = query.from(Repository.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.greaterThan(repository.get("id"), id));
+
+        String url = search.getUrl();
+        if (url != null && !url.isEmpty()) {
+            Path<String> urlPath = repository.get("url");
+            predicates.add(switch (search.getMatch()) {
+                case EXACT -> builder.equal(urlPath, url);
+                case PREFIX -> builder.like(urlPath, escapeLike(url) + "%", LIKE_ESCAPE);
+                case CONTAINS -> builder.like(urlPath, "%" + escapeLike(url) + "%", LIKE_ESCAPE);
+            });
+        }
+
+        if (search.getType() != null) {
+            predicates.add(builder.equal(repository.get("provider"), search.getType()));
+        }
+
+        if (search.getOwner() != null && !search.getOwner().isEmpty()) {
+            predicates.add(builder.equal(repository.get("owner"), search.getOwner().toLowerCase(Locale.ROOT)));
+        }
+
+        if (search.getSecretKey() != null && !search.getSecretKey().isEmpty()) {
+            Subquery<Long> secrets = query.subquery(Long.class);
+            Join<Repository, Secret> secret = secrets.correlate(repository).join("secrets");
+            secrets.select(secret.get("id")).where(builder.equal(secret.get("secretKey"), search.getSecretKey()));
+            predicates.add(builder.exists(secrets));
+        }
+
+        query.select(repository.get("id"))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(builder.asc(repository.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit.max())
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char character : value.toCharArray()) {
+            if (character == LIKE_ESCAPE || character == '%' || character == '_') {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(character);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.model.Secret;
+
+/**
+ * A secret together with the id of a repository that has it.
+ *
+ * @param repositoryId the repository id
+ * @param secret the secret, null for a repository without secrets
+ */
+public record RepositorySecret(Long repositoryId, Secret secret) {
+}
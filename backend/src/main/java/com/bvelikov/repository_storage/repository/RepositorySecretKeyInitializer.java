@@ -0,0 +1,55 @@
+package com.bvelikov.repository_storage.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * <p>This class takes the secret keys of the secrets that were added to repositories without taking their keys, when
+ * the application starts. These are the secrets added before the keys were tracked, and the secrets added by an
+ * instance of an older version during a rolling deploy.</p>
+ *
+ * <p>Repositories that already have more than one secret with the same key keep them, but the key is taken once, so
+ * no further duplicates can be added.</p>
+ *
+ * <p>Only the keys that are not taken yet are inserted, so the statement can run on every start.</p>
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class RepositorySecretKeyInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(RepositorySecretKeyInitializer.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void initialize() {
+        Integer inserted;
+        try {
+            inserted = transactionTemplate.execute(status -> jdbcTemplate.update(
+                    "insert into repository_secret_keys (repository_id, secret_key) "
+                            + "select distinct rs.repository_id, s.secret_key "
+                            + "from repository_secrets rs join secrets s on s.id = rs.secret_id "
+                            + "where not exists (select 1 from repository_secret_keys k "
+                            + "where k.repository_id = rs.repository_id and k.secret_key = s.secret_key)"));
+        } catch (DuplicateKeyException e) {
+            // Another instance took one of the keys in the meantime, the rest are taken on the next start
+            logger.warn("Secret keys were taken concurrently, the keys that are not taken yet are taken on the next "
+                    + "start");
+            return;
+        }
+
+        if (inserted != null && inserted > 0) {
+            logger.info("Took {} secret keys that were not taken yet", inserted);
+        }
+    }
+}
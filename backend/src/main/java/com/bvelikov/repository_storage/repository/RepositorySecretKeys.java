@@ -0,0 +1,105 @@
+package com.bvelikov.repository_storage.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * <p>This class takes and releases secret keys in repositories, in the <i>repository_secret_keys</i> table. A key is
+ * taken with a plain insert, and the primary key of the table rejects a key that is already taken, so concurrent
+ * writers can not add the same key to a repository.</p>
+ *
+ * <p>The statements are sent through JDBC, so a rejected key does not mark the surrounding transaction for rollback.
+ * The caller decides whether to roll back the writes it made before the key was rejected.</p>
+ *
+ * <p>Secrets are added to and removed from a repository with {@link #addSecret(Long, Long, String)} and
+ * {@link #removeSecret(Long, Long, String)}, which write the repository's secrets together with the key, so the two
+ * can not get out of step. Keys of secrets that were added in any other way are taken by
+ * {@link RepositorySecretKeyInitializer} on the next start.</p>
+ */
+@Component
+public class RepositorySecretKeys {
+    private static final String INSERT = "insert into repository_secret_keys (repository_id, secret_key) values (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RepositoryRepository repositoryRepository;
+
+    /**
+     * A method that adds a secret to a repository and takes the secret's key in it. The secret must already be
+     * inserted.
+     *
+     * @param repositoryId the repository id
+     * @param secretId the secret id
+     * @param secretKey the secret's key
+     * @return True if the secret is added, false if the repository already has a secret with this key
+     */
+    public boolean addSecret(Long repositoryId, Long secretId, String secretKey) {
+        if (!take(repositoryId, secretKey)) {
+            return false;
+        }
+
+        repositoryRepository.insertSecret(repositoryId, secretId);
+        return true;
+    }
+
+    /**
+     * A method that removes a secret from a repository and releases the secret's key in it.
+     *
+     * @param repositoryId the repository id
+     * @param secretId the secret id
+     * @param secretKey the secret's key
+     * @return True if the secret is removed, false if the repository did not have it
+     */
+    public boolean removeSecret(Long repositoryId, Long secretId, String secretKey) {
+        if (repositoryRepository.deleteSecret(repositoryId, secretId) == 0) {
+            return false;
+        }
+
+        release(repositoryId, secretKey);
+        return true;
+    }
+
+    /**
+     * A method that takes a secret key in a repository.
+     *
+     * @param repositoryId the repository id
+     * @param secretKey the secret key
+     * @return True if the key is taken, false if it was already taken
+     */
+    public boolean take(Long repositoryId, String secretKey) {
+        try {
+            jdbcTemplate.update(INSERT, repositoryId, secretKey);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A method that takes many secret keys with JDBC batches.
+     *
+     * @param keys pairs of repository id and secret key
+     * @exception DuplicateKeyException if any of the keys is already taken. Some of the other keys may be taken, so
+     *                                  the transaction must be rolled back.
+     */
+    public void takeAll(List<Object[]> keys) {
+        jdbcTemplate.batchUpdate(INSERT, keys);
+    }
+
+    /**
+     * A method that releases a secret key in a repository.
+     *
+     * @param repositoryId the repository id
+     * @param secretKey the secret key
+     */
+    public void release(Long repositoryId, String secretKey) {
+        jdbcTemplate.update("delete from repository_secret_keys where repository_id = ? and secret_key = ?",
+                repositoryId, secretKey);
+    }
+}
@@ -0,0 +1,44 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.model.Secret;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * <p>This class moves the secret id generator past the ids that are already in use when the application starts.</p>
+ *
+ * <p>Secrets used to get their ids from an auto-increment column. The table based generator that replaced it
+ * starts from its initial value, so in an existing database it would hand out ids that are already taken.</p>
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SecretIdGeneratorInitializer {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void initialize() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from secrets", Long.class);
+            // A pooled generator hands out the allocation below the stored value first
+            long nextValue = maxId + Secret.ID_ALLOCATION_SIZE + 1;
+
+            int updated = jdbcTemplate.update(
+                    "update " + Secret.ID_GENERATOR_TABLE + " set next_val = ? where name = ? and next_val < ?",
+                    nextValue, "secrets", nextValue);
+            Integer rows = jdbcTemplate.queryForObject(
+                    "select count(*) from " + Secret.ID_GENERATOR_TABLE + " where name = ?", Integer.class, "secrets");
+            if (updated == 0 && rows == 0) {
+                jdbcTemplate.update("insert into " + Secret.ID_GENERATOR_TABLE + " (name, next_val) values (?, ?)",
+                        "secrets", nextValue);
+            }
+        });
+    }
+}
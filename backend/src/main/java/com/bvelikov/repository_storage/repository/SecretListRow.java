@@ -0,0 +1,10 @@
+package com.bvelikov.repository_storage.repository;
+
+/**
+ * A secret's listed columns, without its value.
+ *
+ * @param id the secret id
+ * @param secretKey the secret key
+ */
+public record SecretListRow(Long id, String secretKey) {
+}
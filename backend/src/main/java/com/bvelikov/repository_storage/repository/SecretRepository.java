@@ -2,17 +2,88 @@ package com.bvelikov.repository_storage.repository;
 
 import com.bvelikov.repository_storage.model.Repository;
 import com.bvelikov.repository_storage.model.Secret;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface SecretRepository extends JpaRepository<Secret, Long> {
-    // Optional<Secret> findByRepository_IdAndSecretKey(Long id, String secretKey);
-    Optional<Secret> findByRepositoriesInAndSecretKey(Collection<Repository> repositories, String secretKey);
-
     // List<Secret> findAllByRepository_Id(Long id);
     List<Secret> findByRepositories(Repository repositories);
 
+    /**
+     * A method that returns the ids and keys of all secrets, loaded in a single query. No entities are loaded, so the
+     * rows are not tracked by the persistence context, and the secrets' values are not read.
+     *
+     * @return The ids and keys of all secrets, ordered by id
+     */
+    @Query("select new com.bvelikov.repository_storage.repository.SecretListRow(s.id, s.secretKey) "
+            + "from Secret s order by s.id")
+    List<SecretListRow> findAllListRows();
+
+    /**
+     * A method that returns the ids and keys of the page of secrets following a cursor, ordered by id. Like
+     * {@link #findAllListRows()}, no entities are loaded and the secrets' values are not read.
+     *
+     * @param id the cursor - only secrets with an id greater than this value are returned
+     * @param limit the maximum number of secrets to return
+     * @return The ids and keys of the secrets following the cursor
+     */
+    @Query("select new com.bvelikov.repository_storage.repository.SecretListRow(s.id, s.secretKey) "
+            + "from Secret s where s.id > :id order by s.id")
+    List<SecretListRow> findListRowsByIdGreaterThan(Long id, Limit limit);
+
+    /**
+     * A method that returns a secret together with the repositories using it, loaded in a single query.
+     *
+     * @param id the secret id
+     * @return The secret with initialized repositories, or an empty optional if it does not exist
+     */
+    @EntityGraph(attributePaths = "repositories")
+    Optional<Secret> findWithRepositoriesById(Long id);
+
+    /**
+     * A method that returns those of the given secrets that are not used by any repository, with a single statement.
+     *
+     * @param ids the ids of the secrets
+     * @return The ids of the orphaned secrets
+     */
+    @Query(value = "select s.id from secrets s where s.id in :ids "
+            + "and not exists (select 1 from repository_secrets rs where rs.secret_id = s.id)", nativeQuery = true)
+    List<Long> findOrphanIdsByIdIn(Collection<Long> ids);
+
+    /**
+     * A method that deletes those of the given secrets that are not used by any repository, with a single statement.
+     * Only the cached secrets are evicted from the second-level cache, as only the secrets table is modified.
+     *
+     * @param ids the ids of the secrets to delete if they are orphaned
+     * @return The number of deleted secrets
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "secrets"))
+    @Query(value = "delete from secrets s where s.id in :ids "
+            + "and not exists (select 1 from repository_secrets rs where rs.secret_id = s.id)", nativeQuery = true)
+    int deleteOrphansByIdIn(Collection<Long> ids);
+
+    /**
+     * A method that returns the secrets changed after a position in the change feed, ordered by that position.
+     *
+     * @param after the change time of the position
+     * @param id the secret id of the position
+     * @param until only secrets changed at or before this time are returned
+     * @param limit the maximum number of secrets to return
+     * @return The secrets following the position
+     */
+    @Query("select s from Secret s where s.updatedAt <= :until "
+            + "and (s.updatedAt > :after or (s.updatedAt = :after and s.id > :id)) order by s.updatedAt, s.id")
+    List<Secret> findChangedAfter(Instant after, Long id, Instant until, Limit limit);
 }
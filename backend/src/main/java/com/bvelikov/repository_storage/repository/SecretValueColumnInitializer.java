@@ -0,0 +1,56 @@
+package com.bvelikov.repository_storage.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+
+/**
+ * <p>This class allows secrets without a value in the legacy <i>secret_value</i> column, when the application starts.
+ * New values are stored in the <i>encrypted_value</i> column, but schemas created before it require a legacy value,
+ * and a schema update does not drop that constraint.</p>
+ *
+ * <p>Only MySQL schemas are changed, as the statement is MySQL specific. The constraint is dropped once, afterwards
+ * the column metadata shows it is gone and nothing is changed.</p>
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SecretValueColumnInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(SecretValueColumnInitializer.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void initialize() {
+        Boolean required = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (!"MySQL".equalsIgnoreCase(metaData.getDatabaseProductName())) {
+                return false;
+            }
+
+            for (String table : new String[]{"secrets", "SECRETS"}) {
+                try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, "%")) {
+                    while (columns.next()) {
+                        if ("secret_value".equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                            return columns.getInt("NULLABLE") == DatabaseMetaData.columnNoNulls;
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+
+        if (Boolean.TRUE.equals(required)) {
+            jdbcTemplate.execute("alter table secrets modify secret_value varchar(255) null");
+            logger.info("Allowed secrets without a legacy value");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.model.Tombstone;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+    /**
+     * A method that records the deletion of those of the given secrets that are not used by any repository, with a
+     * single statement. It is called right before {@link SecretRepository#deleteOrphansByIdIn(Collection)}.
+     *
+     * @param ids the ids of the secrets that are deleted if they are orphaned
+     * @param deletedAt the time of the deletion
+     * @return The number of recorded deletions
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "tombstones"))
+    @Query(value = "insert into tombstones (entity_type, entity_id, deleted_at) "
+            + "select 'SECRET', s.id, :deletedAt from secrets s where s.id in :ids "
+            + "and not exists (select 1 from repository_secrets rs where rs.secret_id = s.id)", nativeQuery = true)
+    int insertForOrphanedSecrets(Collection<Long> ids, Instant deletedAt);
+
+    /**
+     * A method that returns the tombstones following a position in the change feed, ordered by that position.
+     *
+     * @param after the deletion time of the position
+     * @param id the tombstone id of the position
+     * @param until only tombstones deleted at or before this time are returned
+     * @param limit the maximum number of tombstones to return
+     * @return The tombstones following the position
+     */
+    @Query("select t from Tombstone t where t.deletedAt <= :until "
+            + "and (t.deletedAt > :after or (t.deletedAt = :after and t.id > :id)) order by t.deletedAt, t.id")
+    List<Tombstone> findChangedAfter(Instant after, Long id, Instant until, Limit limit);
+}
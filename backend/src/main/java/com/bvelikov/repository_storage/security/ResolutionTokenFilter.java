@@ -0,0 +1,57 @@
+package com.bvelikov.repository_storage.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p>This class authenticates CI runners that resolve secrets, by the bearer token in the <i>Authorization</i>
+ * header. A request with the configured token is granted the role {@link #ROLE}. Without a configured token, no
+ * request is authenticated.</p>
+ *
+ * <p>The tokens are compared by their SHA-256 digests in constant time, so the comparison does not reveal how much of
+ * a token matches.</p>
+ */
+public class ResolutionTokenFilter extends OncePerRequestFilter {
+    public static final String ROLE = "SECRET_RESOLVER";
+
+    private static final String BEARER = "Bearer ";
+
+    private final byte[] tokenDigest;
+
+    public ResolutionTokenFilter(String token) {
+        this.tokenDigest = token == null || token.isBlank() ? null : digest(token);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (tokenDigest != null && authorization != null && authorization.startsWith(BEARER)
+                && MessageDigest.isEqual(tokenDigest, digest(authorization.substring(BEARER.length())))) {
+            SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                    "ci-runner", null, AuthorityUtils.createAuthorityList("ROLE_" + ROLE)));
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private static byte[] digest(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
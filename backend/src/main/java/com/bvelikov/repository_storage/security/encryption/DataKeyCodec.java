@@ -0,0 +1,94 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p>This class wraps and unwraps data keys with a master key, using the AES key wrap algorithm (RFC 3394), which
+ * detects a modified wrapped key before it is used.</p>
+ *
+ * <p>A wrapped key starts with a byte holding its format version, followed by the wrapped key with its integrity
+ * check. Keys wrapped with AES-CBC before the format byte was introduced are read with {@link EncryptionUtil}. Their
+ * length is a multiple of the AES block size, which the length of a key wrapped here never is, so the two formats
+ * can not be mistaken for each other.</p>
+ */
+public final class DataKeyCodec {
+    /**
+     * AES key wrap without padding.
+     */
+    public static final byte FORMAT_AES_KW = 3;
+
+    private static final String ALGORITHM = "AESWrap";
+    private static final String KEY_ALGORITHM = "AES";
+    private static final int BLOCK_SIZE = 16;
+
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(DataKeyCodec::newCipher);
+
+    private DataKeyCodec() {
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException("Cipher " + ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * A method that wraps a data key.
+     *
+     * @param dataKey the data key to be wrapped
+     * @param masterKey the key to wrap the data key with
+     * @return The format version and the wrapped data key
+     * @exception GeneralSecurityException if an error occurs while wrapping the key
+     */
+    public static byte[] wrap(byte[] dataKey, SecretKey masterKey) throws GeneralSecurityException {
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.WRAP_MODE, masterKey);
+        byte[] wrappedKey = cipher.wrap(new SecretKeySpec(dataKey, KEY_ALGORITHM));
+
+        byte[] wrapped = new byte[1 + wrappedKey.length];
+        wrapped[0] = FORMAT_AES_KW;
+        System.arraycopy(wrappedKey, 0, wrapped, 1, wrappedKey.length);
+
+        return wrapped;
+    }
+
+    /**
+     * A method that unwraps a data key and verifies that it was not modified.
+     *
+     * @param wrapped the wrapped key, as returned by {@link #wrap(byte[], SecretKey)}
+     * @param masterKey the key the data key was wrapped with
+     * @return The data key
+     * @exception GeneralSecurityException if the format version is not supported, the key was modified or it was not
+     *                                      wrapped with this master key
+     */
+    public static byte[] unwrap(byte[] wrapped, SecretKey masterKey) throws GeneralSecurityException {
+        if (!isWrapped(wrapped)) {
+            throw new GeneralSecurityException("Unsupported data key format");
+        }
+
+        byte[] wrappedKey = new byte[wrapped.length - 1];
+        System.arraycopy(wrapped, 1, wrappedKey, 0, wrappedKey.length);
+
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.UNWRAP_MODE, masterKey);
+        Key dataKey = cipher.unwrap(wrappedKey, KEY_ALGORITHM, Cipher.SECRET_KEY);
+
+        return dataKey.getEncoded();
+    }
+
+    /**
+     * @param wrapped the stored data key
+     * @return True if the data key was wrapped by this class, false if it was wrapped with AES-CBC before it
+     */
+    public static boolean isWrapped(byte[] wrapped) {
+        return wrapped.length % BLOCK_SIZE != 0 && wrapped[0] == FORMAT_AES_KW;
+    }
+}
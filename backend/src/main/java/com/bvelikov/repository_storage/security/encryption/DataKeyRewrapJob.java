@@ -0,0 +1,141 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import com.bvelikov.repository_storage.model.Secret;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>This class re-wraps the data keys of secrets with the current master key version, and data keys wrapped with
+ * AES-CBC with {@link DataKeyCodec}. It runs in the background once the application is ready.</p>
+ *
+ * <p>Only the data key and key version columns are updated, the encrypted values are not read or written. Secrets
+ * are processed in batches ordered by id, each in a short transaction of its own, with a pause between batches. The
+ * job starts over from the secrets that are still on an older version or wrap format, so it resumes after a restart.
+ * A data key is only replaced if it did not change since it was read, so a secret updated in the meantime keeps its
+ * new key.</p>
+ *
+ * <p>Secrets whose values are still in the AES-CBC format are skipped. They are re-encrypted by
+ * {@link LegacySecretMigrationJob}, so they get a random data key of their own.</p>
+ */
+@Component
+public class DataKeyRewrapJob {
+    private static final Logger logger = LoggerFactory.getLogger(DataKeyRewrapJob.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Autowired
+    private EnvelopeEncryption envelopeEncryption;
+
+    @Autowired
+    private EncryptionProperties encryptionProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (encryptionProperties.getRewrap().isEnabled()) {
+            taskExecutor.execute(this::rewrap);
+        }
+    }
+
+    /**
+     * A method that re-wraps the data keys of all secrets that are not on the current master key version or wrap
+     * format. Secrets whose values are in the legacy format are not changed.
+     *
+     * @return The number of re-wrapped data keys
+     */
+    public int rewrap() {
+        EncryptionProperties.Rewrap properties = encryptionProperties.getRewrap();
+
+        int rewrapped = 0;
+        long cursor = 0L;
+        try {
+            while (true) {
+                long after = cursor;
+                List<Long> ids = new ArrayList<>();
+                List<Long> rewrappedIds = transactionTemplate.execute(
+                        status -> rewrapBatch(after, properties.getBatchSize(), ids));
+                for (Long id : rewrappedIds) {
+                    // The row was changed without Hibernate, so the cached secret is stale
+                    entityManagerFactory.getCache().evict(Secret.class, id);
+                }
+                rewrapped += rewrappedIds.size();
+                if (ids.size() < properties.getBatchSize()) {
+                    break;
+                }
+
+                cursor = ids.get(ids.size() - 1);
+                Thread.sleep(properties.getPause().toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Data key re-wrap stopped after {} secrets", rewrapped, e);
+        }
+
+        if (rewrapped > 0) {
+            logger.info("Re-wrapped {} data keys with master key version {}", rewrapped,
+                    envelopeEncryption.getMasterKeyVersion());
+        }
+        return rewrapped;
+    }
+
+    private List<Long> rewrapBatch(long after, int batchSize, List<Long> ids) {
+        int version = envelopeEncryption.getMasterKeyVersion();
+        List<Object[]> wrappedKeys = new ArrayList<>();
+
+        jdbcTemplate.query("select id, data_key, key_version from secrets where encrypted_value is not null "
+                        + "and (key_version is null or key_version <> ? or char_length(data_key) <> ?) "
+                        + "and id > ? order by id limit ?",
+                resultSet -> {
+                    long id = resultSet.getLong("id");
+                    String dataKey = resultSet.getString("data_key");
+                    Integer keyVersion = resultSet.getObject("key_version", Integer.class);
+                    ids.add(id);
+
+                    String rewrappedKey;
+                    try {
+                        rewrappedKey = envelopeEncryption.rewrap(dataKey, keyVersion);
+                    } catch (Exception e) {
+                        logger.warn("Could not re-wrap the data key of secret {}: {}", id, e.getMessage());
+                        return;
+                    }
+
+                    wrappedKeys.add(new Object[]{rewrappedKey, version, id, dataKey});
+                }, version, EnvelopeEncryption.WRAPPED_DATA_KEY_LENGTH, after, batchSize);
+
+        if (wrappedKeys.isEmpty()) {
+            return List.of();
+        }
+        int[] updateCounts = jdbcTemplate.batchUpdate(
+                "update secrets set data_key = ?, key_version = ? where id = ? and data_key = ?", wrappedKeys);
+
+        List<Long> rewrappedIds = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            // The driver may report batched statements without a row count
+            if (updateCounts[i] != 0) {
+                rewrappedIds.add((Long) wrappedKeys.get(i)[2]);
+            }
+        }
+        return rewrappedIds;
+    }
+}
@@ -0,0 +1,126 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import com.bvelikov.repository_storage.model.Secret;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>This class decrypts secret values and optionally keeps the decrypted values of recently used secrets in memory,
+ * so secrets of frequently verified repositories are not decrypted on every verification.</p>
+ *
+ * <p>The cache is disabled by default. When enabled, it is bounded and its entries expire shortly after they are
+ * decrypted. Values are keyed by their ciphertext, which changes whenever a secret is updated or migrated to the
+ * current format, and are held as bytes
+ * that are overwritten with zeros as soon as an entry is evicted or expires. The strings returned to callers are
+ * copies that can not be zeroed, so callers should not keep them longer than needed.</p>
+ */
+@Component
+public class DecryptedSecretCache {
+    private final EncryptionProperties.DecryptedCache properties;
+
+    private final EnvelopeEncryption envelopeEncryption;
+
+    private final Cache<Object, Plaintext> cache;
+
+    public DecryptedSecretCache(EncryptionProperties encryptionProperties, EnvelopeEncryption envelopeEncryption) {
+        this.properties = encryptionProperties.getDecryptedCache();
+        this.envelopeEncryption = envelopeEncryption;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getTtl())
+                // Expired entries are removed, and zeroed, promptly instead of on the next cache access
+                .scheduler(Scheduler.systemScheduler())
+                .executor(Runnable::run)
+                .removalListener((Object encryptedValue, Plaintext plaintext, RemovalCause cause) -> {
+                    if (plaintext != null) {
+                        plaintext.destroy();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * A method that decrypts a secret's value, or returns it from the cache if it was decrypted recently. Re-wrapping
+     * the secret's data key does not change its encrypted value, so the cached value stays valid.
+     *
+     * @param secret the secret
+     * @return The decrypted value
+     * @exception Exception if an error occurs while decrypting the value
+     */
+    public String decrypt(Secret secret) throws Exception {
+        if (!properties.isEnabled()) {
+            return envelopeEncryption.decrypt(secret);
+        }
+
+        Object encryptedValue = cacheKey(secret);
+        Plaintext cached = cache.getIfPresent(encryptedValue);
+        String value = cached == null ? null : cached.read();
+        if (value != null) {
+            return value;
+        }
+
+        value = envelopeEncryption.decrypt(secret);
+        cache.put(encryptedValue, new Plaintext(value.getBytes(StandardCharsets.UTF_8)));
+
+        return value;
+    }
+
+    /**
+     * A method that removes all decrypted values from the cache and zeroes them.
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @param secret the secret
+     * @return The cached decrypted value of the secret, or null if it is not cached
+     */
+    Plaintext getCached(Secret secret) {
+        return cache.getIfPresent(cacheKey(secret));
+    }
+
+    private static Object cacheKey(Secret secret) {
+        // A wrapped array is compared by its content
+        return EnvelopeEncryption.isLegacyFormat(secret)
+                ? secret.getSecretValue()
+                : ByteBuffer.wrap(secret.getEncryptedValue());
+    }
+
+    /**
+     * A decrypted value that can be destroyed. Reading and destroying are synchronized, so a reader never sees a
+     * partially zeroed value.
+     */
+    static final class Plaintext {
+        private byte[] bytes;
+
+        Plaintext(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return The value, or null if it was already destroyed
+         */
+        synchronized String read() {
+            return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        synchronized void destroy() {
+            if (bytes != null) {
+                Arrays.fill(bytes, (byte) 0);
+                bytes = null;
+            }
+        }
+
+        synchronized boolean isDestroyed() {
+            return bytes == null;
+        }
+    }
+}
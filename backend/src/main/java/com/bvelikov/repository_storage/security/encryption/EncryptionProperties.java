@@ -0,0 +1,192 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of secret encryption, bound to the <i>repository-storage.encryption</i> properties.
+ */
+@ConfigurationProperties(prefix = "repository-storage.encryption")
+public class EncryptionProperties {
+    private int masterKeyVersion = KeyManagement.LEGACY_KEY_VERSION;
+
+    private final DecryptedCache decryptedCache = new DecryptedCache();
+
+    private final Rewrap rewrap = new Rewrap();
+
+    private final LazyMigration lazyMigration = new LazyMigration();
+
+    private final Migration migration = new Migration();
+
+    /**
+     * @return The version of the master key that wraps the data keys of new secrets. Data keys wrapped by older
+     *         versions are re-wrapped in the background.
+     */
+    public int getMasterKeyVersion() {
+        return masterKeyVersion;
+    }
+
+    public void setMasterKeyVersion(int masterKeyVersion) {
+        this.masterKeyVersion = masterKeyVersion;
+    }
+
+    public DecryptedCache getDecryptedCache() {
+        return decryptedCache;
+    }
+
+    public Rewrap getRewrap() {
+        return rewrap;
+    }
+
+    public LazyMigration getLazyMigration() {
+        return lazyMigration;
+    }
+
+    public Migration getMigration() {
+        return migration;
+    }
+
+    /**
+     * Configuration of the in-memory cache of decrypted secret values.
+     */
+    public static class DecryptedCache {
+        private boolean enabled = false;
+
+        private Duration ttl = Duration.ofSeconds(30);
+
+        private long maxSize = 1_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return How long a decrypted value is kept after it was decrypted
+         */
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * Configuration of the background job that re-wraps data keys with the current master key version.
+     */
+    public static class Rewrap {
+        private boolean enabled = true;
+
+        private int batchSize = 500;
+
+        private Duration pause = Duration.ofMillis(100);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * @return How long the job waits between batches
+         */
+        public Duration getPause() {
+            return pause;
+        }
+
+        public void setPause(Duration pause) {
+            this.pause = pause;
+        }
+    }
+
+    /**
+     * Configuration of the background job that re-encrypts all values in the legacy format.
+     */
+    public static class Migration {
+        private boolean enabled = true;
+
+        private int batchSize = 100;
+
+        private Duration pause = Duration.ofMillis(100);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * @return How long the job waits between batches
+         */
+        public Duration getPause() {
+            return pause;
+        }
+
+        public void setPause(Duration pause) {
+            this.pause = pause;
+        }
+    }
+
+    /**
+     * Configuration of the re-encryption of values in the legacy format when they are used.
+     */
+    public static class LazyMigration {
+        private boolean enabled = true;
+
+        private int maxPending = 1_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return The maximum number of secrets waiting to be migrated. Secrets used while the limit is reached are
+         *         migrated the next time they are used.
+         */
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+    }
+}
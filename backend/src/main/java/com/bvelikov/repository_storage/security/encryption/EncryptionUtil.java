@@ -1,33 +1,66 @@
 package com.bvelikov.repository_storage.security.encryption;
 
 import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Base64;
 
+/**
+ * <p>This class encrypts and decrypts secret values.</p>
+ *
+ * <p>Looking up a cipher and seeding a secure random generator are expensive compared to encrypting a short value,
+ * so every thread keeps its own instances and reuses them. Neither class is safe to share between threads while it
+ * is in use, and an initialized cipher is always re-initialized with a fresh IV before it is used again.</p>
+ */
 public class EncryptionUtil {
     private static final String ALGORITHM = "AES/CBC/PKCS5Padding";
     private static final int IV_SIZE = 16;
 
     private static final SecretKey SECRET_KEY = KeyManagement.getKey();
 
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(EncryptionUtil::newCipher);
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException("Cipher " + ALGORITHM + " is not available", e);
+        }
+    }
+
     /**
-     * A method that encrypts a string value.
+     * A method that encrypts a string value with the legacy key, which encrypted all secrets before they got data keys
+     * of their own.
      *
      * @param value The value to be encrypted
      * @return The IV used for the encryption, combined with the encrypted value
      * @exception Exception if an error occurs while encrypting the value
      */
     public static String encrypt(String value) throws Exception {
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
+        return encrypt(value.getBytes(), SECRET_KEY);
+    }
+
+    /**
+     * A method that encrypts a value.
+     *
+     * @param value The value to be encrypted
+     * @param key The key to encrypt the value with
+     * @return The IV used for the encryption, combined with the encrypted value
+     * @exception Exception if an error occurs while encrypting the value
+     */
+    public static String encrypt(byte[] value, SecretKey key) throws Exception {
+        Cipher cipher = CIPHER.get();
         byte[] iv = new byte[IV_SIZE];
-        SecureRandom random = new SecureRandom();
-        random.nextBytes(iv);
+        RANDOM.get().nextBytes(iv);
         IvParameterSpec ivParams = new IvParameterSpec(iv);
 
-        cipher.init(Cipher.ENCRYPT_MODE, SECRET_KEY, ivParams);
-        byte[] encryptedValue = cipher.doFinal(value.getBytes());
+        cipher.init(Cipher.ENCRYPT_MODE, key, ivParams);
+        byte[] encryptedValue = cipher.doFinal(value);
 
         // Combine IV and encrypted value
         byte[] combined = new byte[IV_SIZE + encryptedValue.length];
@@ -38,7 +71,7 @@ public class EncryptionUtil {
     }
 
     /**
-     * A method that decrypts a string value.
+     * A method that decrypts a string value encrypted with the legacy key.
      *
      * @param encryptedValue The value to be decrypted. The value's first 16 bytes should contain the IV to be used for
      *                       decryption.
@@ -46,17 +79,32 @@ public class EncryptionUtil {
      * @exception Exception if an error occurs while decrypting the value
      */
     public static String decrypt(String encryptedValue) throws Exception {
+        return new String(decrypt(encryptedValue, SECRET_KEY));
+    }
+
+    /**
+     * A method that decrypts a value.
+     *
+     * @param encryptedValue The value to be decrypted. The value's first 16 bytes should contain the IV to be used for
+     *                       decryption.
+     * @param key The key the value was encrypted with
+     * @return The decrypted value
+     * @exception Exception if an error occurs while decrypting the value
+     */
+    public static byte[] decrypt(String encryptedValue, SecretKey key) throws Exception {
         byte[] decodedValue = Base64.getDecoder().decode(encryptedValue);
-        byte[] iv = new byte[IV_SIZE];
-        System.arraycopy(decodedValue, 0, iv, 0, IV_SIZE);
-        byte[] cipherText = new byte[decodedValue.length - IV_SIZE];
-        System.arraycopy(decodedValue, IV_SIZE, cipherText, 0, cipherText.length);
 
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        IvParameterSpec ivParams = new IvParameterSpec(iv);
-        cipher.init(Cipher.DECRYPT_MODE, SECRET_KEY, ivParams);
-        byte[] decryptedValue = cipher.doFinal(cipherText);
+        Cipher cipher = CIPHER.get();
+        IvParameterSpec ivParams = new IvParameterSpec(decodedValue, 0, IV_SIZE);
+        cipher.init(Cipher.DECRYPT_MODE, key, ivParams);
+
+        return cipher.doFinal(decodedValue, IV_SIZE, decodedValue.length - IV_SIZE);
+    }
 
-        return new String(decryptedValue);
+    /**
+     * @param bytes The array to fill with random bytes, from the secure random generator of the calling thread
+     */
+    static void nextBytes(byte[] bytes) {
+        RANDOM.get().nextBytes(bytes);
     }
 }
@@ -0,0 +1,207 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import com.bvelikov.repository_storage.model.Secret;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * <p>This class encrypts secret values with envelope encryption. Every secret value is encrypted with a random data
+ * key of its own, and the data key is stored with the secret, wrapped (encrypted) by a versioned master key.</p>
+ *
+ * <p>Data keys are wrapped with {@link DataKeyCodec}, so a modified wrapped key is rejected before it is used. Data
+ * keys wrapped with AES-CBC before it stay readable and are re-wrapped by {@link DataKeyRewrapJob}.</p>
+ *
+ * <p>Rotating the master key only re-wraps the data keys, the encrypted values do not change. Secrets that were
+ * encrypted before they got data keys are decrypted with the legacy key directly, until they are re-encrypted with
+ * a data key of their own.</p>
+ *
+ * <p>Values are encrypted with {@link SecretCodec}. Values encrypted with AES-CBC before it, with or without a data
+ * key, stay readable and are re-encrypted by {@link LegacySecretMigrator} when they are used.</p>
+ *
+ * <p>The number of encrypted and decrypted values is published as <i>secret.encryptions</i> and
+ * <i>secret.decryptions</i>, tagged with the format of the value.</p>
+ */
+@Component
+public class EnvelopeEncryption {
+    private static final String ALGORITHM = "AES";
+
+    private static final int DATA_KEY_SIZE = 32;
+
+    // The format byte, the data key and the integrity check of the key wrap algorithm
+    private static final int WRAPPED_DATA_KEY_SIZE = 1 + DATA_KEY_SIZE + 8;
+
+    /**
+     * The length of a data key wrapped by {@link DataKeyCodec}, as it is stored. Data keys wrapped with AES-CBC are
+     * longer.
+     */
+    public static final int WRAPPED_DATA_KEY_LENGTH = Base64.getEncoder()
+            .encodeToString(new byte[WRAPPED_DATA_KEY_SIZE]).length();
+
+    private final int masterKeyVersion;
+
+    private final Counter encryptions;
+
+    private final Counter decryptions;
+
+    private final Counter legacyDecryptions;
+
+    /**
+     * Creates an instance that publishes its metrics to the global registry, for use outside of the application.
+     *
+     * @param properties the encryption configuration
+     */
+    public EnvelopeEncryption(EncryptionProperties properties) {
+        this(properties, Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public EnvelopeEncryption(EncryptionProperties properties, MeterRegistry meterRegistry) {
+        this.masterKeyVersion = properties.getMasterKeyVersion();
+        KeyManagement.getOrCreateMasterKey(masterKeyVersion);
+
+        this.encryptions = Counter.builder("secret.encryptions")
+                .description("Number of encrypted secret values")
+                .tag("format", "gcm")
+                .register(meterRegistry);
+        this.decryptions = Counter.builder("secret.decryptions")
+                .description("Number of decrypted secret values")
+                .tag("format", "gcm")
+                .register(meterRegistry);
+        this.legacyDecryptions = Counter.builder("secret.decryptions")
+                .description("Number of decrypted secret values")
+                .tag("format", "cbc")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return The version of the master key that wraps new data keys
+     */
+    public int getMasterKeyVersion() {
+        return masterKeyVersion;
+    }
+
+    /**
+     * A method that encrypts a value with a new data key.
+     *
+     * @param value the value to be encrypted
+     * @return The encrypted value with its wrapped data key
+     * @exception Exception if an error occurs while encrypting the value
+     */
+    public EncryptedValue encrypt(String value) throws Exception {
+        byte[] dataKey = new byte[DATA_KEY_SIZE];
+        EncryptionUtil.nextBytes(dataKey);
+        byte[] plaintext = value.getBytes(StandardCharsets.UTF_8);
+        try {
+            SecretKeySpec key = new SecretKeySpec(dataKey, ALGORITHM);
+            byte[] encryptedValue = SecretCodec.encrypt(ByteBuffer.wrap(plaintext), key);
+            String wrappedKey = wrap(dataKey);
+
+            encryptions.increment();
+            return new EncryptedValue(encryptedValue, wrappedKey, masterKeyVersion);
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    /**
+     * A method that decrypts the value of a secret.
+     *
+     * @param secret the secret
+     * @return The decrypted value
+     * @exception Exception if an error occurs while decrypting the value, or the master key version of the secret
+     *                      does not exist
+     */
+    public String decrypt(Secret secret) throws Exception {
+        if (secret.getDataKey() == null) {
+            legacyDecryptions.increment();
+            return EncryptionUtil.decrypt(secret.getSecretValue());
+        }
+
+        byte[] dataKey = unwrap(secret.getDataKey(), secret.getKeyVersion());
+        SecretKeySpec key = new SecretKeySpec(dataKey, ALGORITHM);
+        try {
+            if (isLegacyFormat(secret)) {
+                legacyDecryptions.increment();
+                return new String(EncryptionUtil.decrypt(secret.getSecretValue(), key));
+            }
+
+            byte[] plaintext = SecretCodec.decrypt(secret.getEncryptedValue(), key);
+            decryptions.increment();
+            try {
+                return new String(plaintext, StandardCharsets.UTF_8);
+            } finally {
+                Arrays.fill(plaintext, (byte) 0);
+            }
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+    }
+
+    /**
+     * @param secret the secret
+     * @return True if the secret's value is encrypted with AES-CBC, in the format used before {@link SecretCodec}
+     */
+    public static boolean isLegacyFormat(Secret secret) {
+        return secret.getEncryptedValue() == null;
+    }
+
+    /**
+     * A method that wraps a data key with the current master key version, in the format of {@link DataKeyCodec}.
+     *
+     * @param wrappedKey the data key wrapped by an older master key version or with AES-CBC
+     * @param keyVersion the master key version that wrapped the data key
+     * @return The data key wrapped by the current master key version
+     * @exception Exception if an error occurs while unwrapping or wrapping the key
+     */
+    public String rewrap(String wrappedKey, Integer keyVersion) throws Exception {
+        byte[] dataKey = unwrap(wrappedKey, keyVersion);
+        try {
+            return wrap(dataKey);
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+    }
+
+    private String wrap(byte[] dataKey) throws Exception {
+        return Base64.getEncoder().encodeToString(
+                DataKeyCodec.wrap(dataKey, KeyManagement.getMasterKey(masterKeyVersion)));
+    }
+
+    private static byte[] unwrap(String wrappedKey, Integer keyVersion) throws Exception {
+        int version = keyVersion == null ? KeyManagement.LEGACY_KEY_VERSION : keyVersion;
+        byte[] wrapped = Base64.getDecoder().decode(wrappedKey);
+        if (DataKeyCodec.isWrapped(wrapped)) {
+            return DataKeyCodec.unwrap(wrapped, KeyManagement.getMasterKey(version));
+        }
+        return EncryptionUtil.decrypt(wrappedKey, KeyManagement.getMasterKey(version));
+    }
+
+    /**
+     * A value encrypted with a data key of its own.
+     *
+     * @param encryptedValue the encrypted value, in the format of {@link SecretCodec}
+     * @param dataKey the data key, wrapped by the master key
+     * @param keyVersion the version of the master key
+     */
+    public record EncryptedValue(byte[] encryptedValue, String dataKey, int keyVersion) {
+        /**
+         * @param secret the secret to store the encrypted value in. A value in the legacy format is removed.
+         */
+        public void applyTo(Secret secret) {
+            secret.setEncryptedValue(encryptedValue);
+            secret.setSecretValue(null);
+            secret.setDataKey(dataKey);
+            secret.setKeyVersion(keyVersion);
+        }
+    }
+}
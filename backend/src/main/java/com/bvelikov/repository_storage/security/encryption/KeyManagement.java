@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p></>This class is used for key management for encryption.</p>
@@ -15,24 +17,35 @@ import java.security.NoSuchAlgorithmException;
  * I decided to implement it this way for simplicity. In an actual
  * application, maybe a secure storage will be used (e.g. AWS Secret Manager,
  * Azure Key Vault, etc.).</p>
+ *
+ * <p>Master keys are versioned. The key in <i>secret.key</i> is version 1, and every later version is stored in a
+ * file of its own, e.g. <i>secret.v2.key</i>.</p>
  */
 public class KeyManagement {
+    public static final int LEGACY_KEY_VERSION = 1;
+
     private static final String ALGORITHM = "AES";
 
     private static final String KEY_FILE_PATH = "secret.key";
 
+    private static final Map<Integer, SecretKey> MASTER_KEYS = new ConcurrentHashMap<>();
+
     /**
      * A method that generates a key used for encryption and stores it in the file <i>secret.key</i>.
      *
      * @return The generated secret key
      */
     private static SecretKey generateAndStoreKey() {
+        return generateAndStoreKey(KEY_FILE_PATH);
+    }
+
+    private static SecretKey generateAndStoreKey(String keyFilePath) {
         try {
             KeyGenerator keyGen = KeyGenerator.getInstance(ALGORITHM);
             keyGen.init(256);
             SecretKey secretKey = keyGen.generateKey();
 
-            Files.write(Paths.get(KEY_FILE_PATH), secretKey.getEncoded());
+            Files.write(Paths.get(keyFilePath), secretKey.getEncoded());
             return secretKey;
         } catch (NoSuchAlgorithmException | IOException e) {
             throw new RuntimeException("Couldn't not generate and store key. Exception is: " + e.getMessage());
@@ -52,4 +65,41 @@ public class KeyManagement {
             return generateAndStoreKey();
         }
     }
+
+    /**
+     * A method that returns a version of the master key.
+     *
+     * @param version the key version
+     * @return The stored master key
+     * @exception IllegalStateException if the key version does not exist
+     */
+    public static SecretKey getMasterKey(int version) {
+        return MASTER_KEYS.computeIfAbsent(version, key -> readMasterKey(version, false));
+    }
+
+    /**
+     * A method that returns a version of the master key, and generates and stores it if it does not exist yet.
+     *
+     * @param version the key version
+     * @return The master key
+     */
+    public static SecretKey getOrCreateMasterKey(int version) {
+        return MASTER_KEYS.computeIfAbsent(version, key -> readMasterKey(version, true));
+    }
+
+    private static SecretKey readMasterKey(int version, boolean create) {
+        if (version == LEGACY_KEY_VERSION) {
+            return getKey();
+        }
+
+        String keyFilePath = "secret.v" + version + ".key";
+        try {
+            return new SecretKeySpec(Files.readAllBytes(Paths.get(keyFilePath)), ALGORITHM);
+        } catch (IOException e) {
+            if (create) {
+                return generateAndStoreKey(keyFilePath);
+            }
+            throw new IllegalStateException("Master key version " + version + " does not exist", e);
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * <p>This class re-encrypts all secret values that are still in the AES-CBC format, so they get a random data key of
+ * their own. This includes the secrets encrypted with the legacy key, which have no data key, or whose data key is the
+ * legacy key itself. It runs in the background once the application is ready.</p>
+ *
+ * <p>Secrets are read in batches ordered by id, with a pause between batches, and each one is migrated by
+ * {@link LegacySecretMigrator} in a transaction of its own. The job starts over from the secrets that are still in
+ * the legacy format, so it resumes after a restart.</p>
+ */
+@Component
+public class LegacySecretMigrationJob {
+    private static final Logger logger = LoggerFactory.getLogger(LegacySecretMigrationJob.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Autowired
+    private LegacySecretMigrator legacySecretMigrator;
+
+    @Autowired
+    private EncryptionProperties encryptionProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (encryptionProperties.getMigration().isEnabled()) {
+            taskExecutor.execute(this::migrate);
+        }
+    }
+
+    /**
+     * A method that re-encrypts the values of all secrets that are in the legacy format.
+     *
+     * @return The number of re-encrypted secrets
+     */
+    public int migrate() {
+        EncryptionProperties.Migration properties = encryptionProperties.getMigration();
+
+        int migrated = 0;
+        long cursor = 0L;
+        try {
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList("select id from secrets "
+                                + "where encrypted_value is null and secret_value is not null and id > ? "
+                                + "order by id limit ?",
+                        Long.class, cursor, properties.getBatchSize());
+                for (Long id : ids) {
+                    if (legacySecretMigrator.migrate(id)) {
+                        migrated++;
+                    }
+                }
+                if (ids.size() < properties.getBatchSize()) {
+                    break;
+                }
+
+                cursor = ids.get(ids.size() - 1);
+                Thread.sleep(properties.getPause().toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Legacy secret migration stopped after {} secrets", migrated, e);
+        }
+
+        if (migrated > 0) {
+            logger.info("Re-encrypted {} secrets in the legacy format", migrated);
+        }
+        return migrated;
+    }
+}
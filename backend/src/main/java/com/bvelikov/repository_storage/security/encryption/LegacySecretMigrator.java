@@ -0,0 +1,129 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import com.bvelikov.repository_storage.model.Secret;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>This class re-encrypts secret values that are still in the AES-CBC format with {@link SecretCodec}, when they
+ * are used. Secrets that are never used keep their legacy values, which stay readable.</p>
+ *
+ * <p>Migrations run in the background, so they do not slow down the request that used the secret. The number of
+ * secrets waiting to be migrated is bounded, and a secret is migrated only once at a time. The new value is only
+ * stored if the legacy value did not change since it was read, so a secret updated in the meantime keeps its new
+ * value.</p>
+ */
+@Component
+public class LegacySecretMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(LegacySecretMigrator.class);
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Autowired
+    private EnvelopeEncryption envelopeEncryption;
+
+    @Autowired
+    private EncryptionProperties encryptionProperties;
+
+    /**
+     * A method that schedules the migration of a secret if its value is in the legacy format.
+     *
+     * @param secret the secret that was used
+     */
+    public void migrateLater(Secret secret) {
+        EncryptionProperties.LazyMigration properties = encryptionProperties.getLazyMigration();
+        if (!properties.isEnabled() || !EnvelopeEncryption.isLegacyFormat(secret) || secret.getId() == null
+                || pending.size() >= properties.getMaxPending() || !pending.add(secret.getId())) {
+            return;
+        }
+
+        Long id = secret.getId();
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    migrate(id);
+                } finally {
+                    pending.remove(id);
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.remove(id);
+        }
+    }
+
+    /**
+     * A method that re-encrypts a secret's value if it is in the legacy format.
+     *
+     * @param id the secret's id
+     * @return True if the secret was migrated, false if it is already in the current format, does not exist or was
+     *         changed while it was migrated
+     */
+    public boolean migrate(Long id) {
+        Boolean migrated;
+        try {
+            migrated = transactionTemplate.execute(status -> migrateInTransaction(id));
+        } catch (RuntimeException e) {
+            logger.warn("Could not migrate secret {}: {}", id, e.getMessage());
+            return false;
+        }
+
+        if (Boolean.TRUE.equals(migrated)) {
+            // The row was changed without Hibernate, so the cached secret is stale
+            entityManagerFactory.getCache().evict(Secret.class, id);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean migrateInTransaction(Long id) {
+        List<Secret> legacySecrets = jdbcTemplate.query(
+                "select id, secret_value, data_key, key_version from secrets "
+                        + "where id = ? and encrypted_value is null and secret_value is not null",
+                (resultSet, rowNumber) -> {
+                    Secret secret = new Secret();
+                    secret.setId(resultSet.getLong("id"));
+                    secret.setSecretValue(resultSet.getString("secret_value"));
+                    secret.setDataKey(resultSet.getString("data_key"));
+                    secret.setKeyVersion(resultSet.getObject("key_version", Integer.class));
+                    return secret;
+                }, id);
+        if (legacySecrets.isEmpty()) {
+            return false;
+        }
+
+        Secret secret = legacySecrets.get(0);
+        EnvelopeEncryption.EncryptedValue encryptedValue;
+        try {
+            encryptedValue = envelopeEncryption.encrypt(envelopeEncryption.decrypt(secret));
+        } catch (Exception e) {
+            throw new IllegalStateException("The legacy value can not be decrypted", e);
+        }
+
+        return jdbcTemplate.update("update secrets set encrypted_value = ?, data_key = ?, key_version = ?, "
+                        + "secret_value = null where id = ? and encrypted_value is null and secret_value = ?",
+                encryptedValue.encryptedValue(), encryptedValue.dataKey(), encryptedValue.keyVersion(),
+                id, secret.getSecretValue()) > 0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p>This class encrypts and decrypts secret values with authenticated encryption (AES-GCM), to and from the raw
+ * bytes stored in the database.</p>
+ *
+ * <p>An encrypted value starts with a byte holding its format version, followed by the nonce and the ciphertext with
+ * the authentication tag. Values encrypted before the format byte was introduced (AES-CBC, Base64 encoded) are
+ * stored in a different column and are read with {@link EncryptionUtil}.</p>
+ *
+ * <p>The output array is allocated once with its final size, and the cipher writes into it directly. Like in
+ * {@link EncryptionUtil}, every thread reuses its own cipher.</p>
+ */
+public final class SecretCodec {
+    /**
+     * AES-GCM with a 96-bit nonce and a 128-bit authentication tag.
+     */
+    public static final byte FORMAT_AES_GCM = 2;
+
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+    private static final int NONCE_SIZE = 12;
+    private static final int TAG_SIZE = 16;
+    private static final int HEADER_SIZE = 1 + NONCE_SIZE;
+
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(SecretCodec::newCipher);
+
+    private SecretCodec() {
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException("Cipher " + ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * A method that encrypts a value. The remaining bytes of the buffer are encrypted and the buffer's position is
+     * moved to its limit.
+     *
+     * @param value the value to be encrypted
+     * @param key the key to encrypt the value with
+     * @return The format version, the nonce and the encrypted value with its authentication tag
+     * @exception GeneralSecurityException if an error occurs while encrypting the value
+     */
+    public static byte[] encrypt(ByteBuffer value, SecretKey key) throws GeneralSecurityException {
+        byte[] encrypted = new byte[HEADER_SIZE + value.remaining() + TAG_SIZE];
+        encrypted[0] = FORMAT_AES_GCM;
+
+        byte[] nonce = new byte[NONCE_SIZE];
+        EncryptionUtil.nextBytes(nonce);
+        System.arraycopy(nonce, 0, encrypted, 1, NONCE_SIZE);
+
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE * 8, nonce));
+        cipher.doFinal(value, ByteBuffer.wrap(encrypted, HEADER_SIZE, encrypted.length - HEADER_SIZE));
+
+        return encrypted;
+    }
+
+    /**
+     * A method that decrypts a value and verifies that it was not modified.
+     *
+     * @param encrypted the value, as returned by {@link #encrypt(ByteBuffer, SecretKey)}
+     * @param key the key the value was encrypted with
+     * @return The decrypted value
+     * @exception GeneralSecurityException if the format version is not supported, the value was modified or it was
+     *                                      not encrypted with this key
+     */
+    public static byte[] decrypt(byte[] encrypted, SecretKey key) throws GeneralSecurityException {
+        if (encrypted.length < HEADER_SIZE + TAG_SIZE || encrypted[0] != FORMAT_AES_GCM) {
+            throw new GeneralSecurityException("Unsupported secret format");
+        }
+
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE * 8, encrypted, 1, NONCE_SIZE));
+
+        byte[] value = new byte[encrypted.length - HEADER_SIZE - TAG_SIZE];
+        cipher.doFinal(encrypted, HEADER_SIZE, encrypted.length - HEADER_SIZE, value, 0);
+
+        return value;
+    }
+}
@@ -0,0 +1,262 @@
+package com.bvelikov.repository_storage.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>This class pushes the committed changes of repositories and secrets to the subscribers of the change stream, as
+ * server-sent events with the same content as the change feed of {@link ChangeService}.</p>
+ *
+ * <p>An idle subscriber does not hold a thread. A change is serialized once and offered to the bounded buffer of every
+ * subscriber, so the committing thread never waits for a client. The buffers are written to the clients by virtual
+ * threads of the broadcaster's own, at most one per subscriber at a time, so clients that are slow to read do not take
+ * threads from the rest of the application. A subscriber whose buffer is full does not keep up, so its stream is
+ * closed and the client reconnects and catches up through the change feed. The same happens to a subscriber whose
+ * write takes longer than the write timeout: it is unsubscribed and its writing thread is interrupted. A heartbeat
+ * comment keeps idle connections open and detects clients that went away.</p>
+ *
+ * <p>The number of subscribers is published as <i>changes.stream.subscribers</i> and the number of streams closed
+ * because their buffer was full or a write timed out as <i>changes.stream.dropped</i>.</p>
+ */
+@Component
+public class ChangeBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeBroadcaster.class);
+
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT =
+            SseEmitter.event().comment("heartbeat").build();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ObjectMapper objectMapper;
+
+    private final ExecutorService writers;
+
+    private final ScheduledExecutorService heartbeats;
+
+    private final Counter droppedCounter;
+
+    private final int bufferSize;
+
+    private final int maxSubscribers;
+
+    private final long writeTimeoutNanos;
+
+    public ChangeBroadcaster(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                             @Value("${repository-storage.changes.stream.buffer-size:256}") int bufferSize,
+                             @Value("${repository-storage.changes.stream.max-subscribers:10000}") int maxSubscribers,
+                             @Value("${repository-storage.changes.stream.heartbeat:30s}") Duration heartbeat,
+                             @Value("${repository-storage.changes.stream.write-timeout:10s}") Duration writeTimeout) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+
+        Gauge.builder("changes.stream.subscribers", subscribers, Set::size)
+                .description("Number of clients subscribed to the change stream")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("changes.stream.dropped")
+                .description("Change streams closed because the client did not keep up")
+                .register(meterRegistry);
+
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleWithFixedDelay(() -> subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT)),
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+
+        // Stuck writes are found at most half a timeout late
+        long checkInterval = Math.max(1L, writeTimeout.toMillis() / 2);
+        heartbeats.scheduleWithFixedDelay(this::disconnectStuckSubscribers,
+                checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+
+        writers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("change-stream-writer-", 0).factory());
+    }
+
+    /**
+     * A method that subscribes a client to the change stream.
+     *
+     * @return The emitter of the client's stream, or null if the maximum number of subscribers is reached
+     */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter();
+        subscribe(emitter);
+        return emitter;
+    }
+
+    Subscriber subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(exception -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        // Sent when the response starts, so the client knows that it is subscribed
+        subscriber.offer(HEARTBEAT);
+        return subscriber;
+    }
+
+    /**
+     * @return The number of subscribed clients
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * A method that pushes the changes of a write to all subscribers, once the write's transaction commits. Writes
+     * made without a transaction are pushed right away.
+     *
+     * @param event the changes
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(ChangeEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        Set<ResponseBodyEmitter.DataWithMediaType> data;
+        try {
+            data = SseEmitter.event()
+                    .name("change")
+                    .data(objectMapper.writeValueAsString(event.getChanges()), MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize changes", e);
+            return;
+        }
+
+        subscribers.forEach(subscriber -> subscriber.offer(data));
+    }
+
+    private void disconnectStuckSubscribers() {
+        long now = System.nanoTime();
+        subscribers.forEach(subscriber -> subscriber.checkWriteTimeout(now));
+    }
+
+    @PreDestroy
+    void close() {
+        heartbeats.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        writers.shutdownNow();
+    }
+
+    final class Subscriber {
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> buffer =
+                new ArrayBlockingQueue<>(bufferSize);
+
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        private volatile boolean overflowed;
+
+        private volatile boolean timedOut;
+
+        private volatile boolean sending;
+
+        private volatile long sendStarted;
+
+        private final AtomicReference<Thread> writer = new AtomicReference<>();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> data) {
+            // A heartbeat is not needed if the buffer is full
+            if (!buffer.offer(data) && data != HEARTBEAT && !overflowed) {
+                // Completing the emitter would wait for a write in progress, so the writing task completes it
+                overflowed = true;
+                droppedCounter.increment();
+            }
+
+            if (writing.compareAndSet(false, true)) {
+                try {
+                    writers.execute(this::write);
+                } catch (RejectedExecutionException e) {
+                    // The broadcaster is closing
+                    writing.set(false);
+                }
+            }
+        }
+
+        private void checkWriteTimeout(long now) {
+            if (!sending || now - sendStarted < writeTimeoutNanos || timedOut) {
+                return;
+            }
+
+            // Completing the emitter would wait for the stuck write, so the writing task completes it
+            timedOut = true;
+            subscribers.remove(this);
+            droppedCounter.increment();
+            Thread stuckWriter = writer.get();
+            if (stuckWriter != null) {
+                stuckWriter.interrupt();
+            }
+        }
+
+        private void write() {
+            writer.set(Thread.currentThread());
+            try {
+                do {
+                    if (overflowed || timedOut) {
+                        subscribers.remove(this);
+                        emitter.complete();
+                        return;
+                    }
+
+                    for (var data = buffer.poll(); data != null && !overflowed && !timedOut; data = buffer.poll()) {
+                        sendStarted = System.nanoTime();
+                        sending = true;
+                        try {
+                            emitter.send(data);
+                        } finally {
+                            sending = false;
+                        }
+                    }
+                    writing.set(false);
+                    // Data offered after the last poll, but before the flag was cleared, has no task writing it
+                } while ((!buffer.isEmpty() || overflowed || timedOut) && writing.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, the write timed out or the stream is already complete
+                subscribers.remove(this);
+                writing.set(false);
+            } finally {
+                // The next task may already be writing
+                writer.compareAndSet(Thread.currentThread(), null);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.bvelikov.repository_storage.service;
+
+import com.bvelikov.repository_storage.dto.ChangesDTO;
+import com.bvelikov.repository_storage.dto.RepositoryDTO;
+import com.bvelikov.repository_storage.dto.SecretDTO;
+import com.bvelikov.repository_storage.dto.TombstoneDTO;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.model.Tombstone;
+
+/**
+ * An application event with the repositories and secrets changed by a write. It is published by the write paths and
+ * pushed to the subscribers of {@link ChangeBroadcaster} once the write's transaction commits. The changes are mapped
+ * when they are added, while the entities are still attached.
+ */
+public class ChangeEvent {
+    private final ChangesDTO changes = new ChangesDTO();
+
+    public ChangeEvent changed(Repository repository) {
+        changes.getRepositories().add(RepositoryDTO.toDTO(repository));
+        return this;
+    }
+
+    public ChangeEvent changed(RepositoryDTO repositoryDTO) {
+        changes.getRepositories().add(repositoryDTO);
+        return this;
+    }
+
+    public ChangeEvent changed(Secret secret) {
+        changes.getSecrets().add(SecretDTO.toDTO(secret, 0L));
+        return this;
+    }
+
+    public ChangeEvent deleted(Tombstone.EntityType entityType, Long id) {
+        TombstoneDTO tombstoneDTO = new TombstoneDTO();
+        tombstoneDTO.setEntityType(entityType);
+        tombstoneDTO.setId(id);
+        changes.getDeleted().add(tombstoneDTO);
+        return this;
+    }
+
+    public ChangesDTO getChanges() {
+        return changes;
+    }
+}
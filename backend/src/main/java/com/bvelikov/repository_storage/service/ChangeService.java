@@ -0,0 +1,181 @@
+package com.bvelikov.repository_storage.service;
+
+import com.bvelikov.repository_storage.dto.ChangesDTO;
+import com.bvelikov.repository_storage.dto.RepositoryDTO;
+import com.bvelikov.repository_storage.dto.SecretDTO;
+import com.bvelikov.repository_storage.dto.TombstoneDTO;
+import com.bvelikov.repository_storage.model.ChangeTimestamps;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.model.Tombstone;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.repository.TombstoneRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <p>This class serves the change feed, through which clients that keep a copy of the repositories and secrets read
+ * only what was created, changed or deleted since their last read.</p>
+ *
+ * <p>Repositories and secrets carry the time of their last change, and deletions leave tombstones. Each of the three
+ * is read in the order of (time, id) from the position stored in the client's token, with an index range scan, so
+ * the cost of a read depends on the number of changes and not on the number of rows. Changes are only reported once
+ * they are older than the settle time, so a transaction that took its change time before a read, but committed after
+ * it, is not skipped.</p>
+ */
+@Service
+public class ChangeService {
+    @Autowired
+    private RepositoryRepository repositoryRepository;
+
+    @Autowired
+    private SecretRepository secretRepository;
+
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    @Value("${repository-storage.changes.settle-time:2s}")
+    private Duration settleTime;
+
+    /**
+     * A method that lists the changes following a token.
+     *
+     * @param since the token returned with the previous changes, null to list all repositories and secrets
+     * @param size the maximum number of repositories, secrets and deletions each, must be positive
+     * @return Response entity with response code 200 and body containing the changes and the token that follows them,
+     *         response entity with response code 400 if the token is not valid.
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<ChangesDTO> getChanges(String since, int size) {
+        ChangeToken token;
+        try {
+            token = since == null ? ChangeToken.START : ChangeToken.decode(since);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Instant until = ChangeTimestamps.now().minus(settleTime);
+        Limit limit = Limit.of(size + 1);
+
+        List<Repository> repositories = repositoryRepository.findChangedAfter(
+                token.repositories().at(), token.repositories().id(), until, limit);
+        List<Secret> secrets = secretRepository.findChangedAfter(
+                token.secrets().at(), token.secrets().id(), until, limit);
+        List<Tombstone> tombstones = tombstoneRepository.findChangedAfter(
+                token.tombstones().at(), token.tombstones().id(), until, limit);
+
+        ChangesDTO changes = new ChangesDTO();
+        changes.setHasMore(repositories.size() > size || secrets.size() > size || tombstones.size() > size);
+
+        repositories = repositories.subList(0, Math.min(size, repositories.size()));
+        secrets = secrets.subList(0, Math.min(size, secrets.size()));
+        tombstones = tombstones.subList(0, Math.min(size, tombstones.size()));
+
+        // Limiting a query that fetches a collection would be applied in memory, so the secrets are loaded separately
+        if (!repositories.isEmpty()) {
+            Map<Long, Repository> withSecrets = new HashMap<>();
+            repositoryRepository.findWithSecretsByIdIn(repositories.stream().map(Repository::getId).toList(),
+                    Sort.by("id")).forEach(repository -> withSecrets.put(repository.getId(), repository));
+            repositories.forEach(repository -> changes.getRepositories()
+                    .add(RepositoryDTO.toDTO(withSecrets.get(repository.getId()))));
+        }
+        secrets.forEach(secret -> changes.getSecrets().add(SecretDTO.toDTO(secret, 0L)));
+        tombstones.forEach(tombstone -> changes.getDeleted().add(TombstoneDTO.toDTO(tombstone)));
+
+        changes.setNextToken(new ChangeToken(
+                Position.last(repositories, token.repositories(), Repository::getUpdatedAt, Repository::getId),
+                Position.last(secrets, token.secrets(), Secret::getUpdatedAt, Secret::getId),
+                Position.last(tombstones, token.tombstones(), Tombstone::getDeletedAt, Tombstone::getId)).encode());
+
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * A method that returns a token following all changes made so far, without listing them. A client that lists all
+     * repositories and secrets after it took the token reads the following changes with it.
+     *
+     * @return Response entity with response code 200 and body containing no changes and the token.
+     */
+    public ResponseEntity<ChangesDTO> getLatestToken() {
+        // The changes that are not settled yet may be listed again, which does not affect the client's copy
+        Position latest = new Position(ChangeTimestamps.now().minus(settleTime), Long.MAX_VALUE);
+
+        ChangesDTO changes = new ChangesDTO();
+        changes.setNextToken(new ChangeToken(latest, latest, latest).encode());
+
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * A position in the change feed, the change time and id of the last row read.
+     */
+    record Position(Instant at, long id) {
+        static final Position START = new Position(Instant.EPOCH, 0L);
+
+        static <T> Position last(List<T> rows, Position position, Function<T, Instant> at, Function<T, Long> id) {
+            if (rows.isEmpty()) {
+                return position;
+            }
+
+            T last = rows.get(rows.size() - 1);
+            return new Position(at.apply(last), id.apply(last));
+        }
+    }
+
+    /**
+     * The positions of a client in the feeds of repositories, secrets and deletions, encoded as an opaque string.
+     */
+    record ChangeToken(Position repositories, Position secrets, Position tombstones) {
+        static final ChangeToken START = new ChangeToken(Position.START, Position.START, Position.START);
+
+        String encode() {
+            String token = String.join(".", encode(repositories), encode(secrets), encode(tombstones));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private static String encode(Position position) {
+            long micros = position.at().getEpochSecond() * 1_000_000L + position.at().getNano() / 1_000;
+            return micros + "." + position.id();
+        }
+
+        /**
+         * @param token the encoded token
+         * @return The decoded token
+         * @exception IllegalArgumentException if the token is not valid
+         */
+        static ChangeToken decode(String token) {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split("\\.");
+            if (parts.length != 6) {
+                throw new IllegalArgumentException("Invalid change token");
+            }
+
+            // NumberFormatException is an IllegalArgumentException
+            long[] values = new long[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = Long.parseLong(parts[i]);
+            }
+
+            return new ChangeToken(decode(values[0], values[1]), decode(values[2], values[3]),
+                    decode(values[4], values[5]));
+        }
+
+        private static Position decode(long micros, long id) {
+            return new Position(Instant.EPOCH.plusNanos(Math.multiplyExact(micros, 1_000L)), id);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.bvelikov.repository_storage.service;
+
+import com.bvelikov.repository_storage.model.ChangeTimestamps;
+import com.bvelikov.repository_storage.model.Tombstone;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.repository.TombstoneRepository;
+import com.bvelikov.repository_storage.verification.VerificationCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Service
+public class RepositoryService {
+    @Autowired
+    private RepositoryRepository repositoryRepository;
+
+    @Autowired
+    private SecretRepository secretRepository;
+
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private VerificationCache verificationCache;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    /**
+     * A method that deletes a repository together with the secrets that are not used by any other repository. The
+     * repository is deleted in a single transaction with a constant number of statements, no matter how many secrets
+     * it has. Neither the repository nor its secrets are loaded, only the secrets' ids. Tombstones of the deleted
+     * repository and secrets are recorded for the change feed.
+     *
+     * @param id the repository's id
+     * @return Response entity with response code 204 if the repository is successfully deleted,
+     *         response entity with response code 404 if the repository does not exist.
+     */
+    @Transactional
+    public ResponseEntity<Void> deleteRepository(Long id) {
+        List<Long> secretIds = repositoryRepository.findSecretIdsById(id);
+        // The number of deleted rows tells if the repository exists, without another statement
+        if (repositoryRepository.deleteRepositoryById(id) == 0) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Instant deletedAt = ChangeTimestamps.now();
+        ChangeEvent changeEvent = new ChangeEvent().deleted(Tombstone.EntityType.REPOSITORY, id);
+        tombstoneRepository.save(new Tombstone(Tombstone.EntityType.REPOSITORY, id, deletedAt));
+        if (!secretIds.isEmpty()) {
+            List<Long> orphanIds = secretRepository.findOrphanIdsByIdIn(secretIds);
+            if (!orphanIds.isEmpty()) {
+                tombstoneRepository.insertForOrphanedSecrets(orphanIds, deletedAt);
+                secretRepository.deleteOrphansByIdIn(orphanIds);
+                orphanIds.forEach(secretId -> changeEvent.deleted(Tombstone.EntityType.SECRET, secretId));
+            }
+        }
+        verificationCache.invalidate(id);
+        applicationEventPublisher.publishEvent(changeEvent);
+
+        return ResponseEntity.noContent().build();
+    }
+}
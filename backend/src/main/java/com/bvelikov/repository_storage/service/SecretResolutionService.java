@@ -0,0 +1,149 @@
+package com.bvelikov.repository_storage.service;
+
+import com.bvelikov.repository_storage.dto.ResolvedSecretsDTO;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.RepositorySecret;
+import com.bvelikov.repository_storage.security.encryption.DecryptedSecretCache;
+import com.bvelikov.repository_storage.security.encryption.LegacySecretMigrator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * <p>This class resolves the decrypted secret values of repositories, e.g. for CI runners that need all secrets of a
+ * repository when a job starts.</p>
+ *
+ * <p>The secrets of all requested repositories are loaded with a single query. A secret shared by several repositories
+ * is decrypted once, and the values are decrypted in parallel, through the {@link DecryptedSecretCache}.</p>
+ */
+@Service
+public class SecretResolutionService {
+    private static final Logger logger = LoggerFactory.getLogger(SecretResolutionService.class);
+
+    @Autowired
+    private RepositoryRepository repositoryRepository;
+
+    @Autowired
+    private DecryptedSecretCache decryptedSecretCache;
+
+    @Autowired
+    private LegacySecretMigrator legacySecretMigrator;
+
+    @Value("${repository-storage.secret-resolution.max-repositories:1000}")
+    private int maxRepositories;
+
+    /**
+     * A method that resolves the secret values of a repository.
+     *
+     * @param repositoryId the repository id
+     * @return Response entity with response code 200 and body containing the decrypted values by secret key,
+     *         response entity with response code 404 if the repository does not exist,
+     *         response entity with response code 500 if an error occurs while decrypting a value.
+     */
+    public ResponseEntity<Map<String, String>> resolveSecrets(Long repositoryId) {
+        ResolvedSecretsDTO resolved = resolve(Set.of(repositoryId));
+        if (resolved == null) {
+            return ResponseEntity.internalServerError().build();
+        }
+        if (!resolved.getNotFound().isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(resolved.getRepositories().get(repositoryId));
+    }
+
+    /**
+     * A method that resolves the secret values of many repositories at once.
+     *
+     * @param repositoryIds the repository ids
+     * @return Response entity with response code 200 and body containing the decrypted values by repository id and
+     *         secret key, and the ids of the repositories that do not exist,
+     *         response entity with response code 400 if there are no ids or more than the configured maximum,
+     *         response entity with response code 500 if an error occurs while decrypting a value.
+     */
+    public ResponseEntity<ResolvedSecretsDTO> resolveSecrets(List<Long> repositoryIds) {
+        if (repositoryIds == null || repositoryIds.isEmpty() || repositoryIds.contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Set<Long> ids = new LinkedHashSet<>(repositoryIds);
+        if (ids.size() > maxRepositories) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResolvedSecretsDTO resolved = resolve(ids);
+        if (resolved == null) {
+            return ResponseEntity.internalServerError().build();
+        }
+
+        return ResponseEntity.ok(resolved);
+    }
+
+    /**
+     * @param ids the distinct repository ids
+     * @return The resolved values in the order of the ids, or null if a value could not be decrypted
+     */
+    private ResolvedSecretsDTO resolve(Set<Long> ids) {
+        List<RepositorySecret> rows = repositoryRepository.findSecretsByRepositoryIdIn(ids);
+
+        Map<Long, Secret> secrets = new HashMap<>();
+        rows.stream()
+                .filter(row -> row.secret() != null)
+                .forEach(row -> secrets.putIfAbsent(row.secret().getId(), row.secret()));
+
+        // Each value is decrypted independently, with the cipher of the worker thread
+        List<Secret> distinctSecrets = new ArrayList<>(secrets.values());
+        String[] decryptedValues = new String[distinctSecrets.size()];
+        IntStream.range(0, decryptedValues.length).parallel().forEach(i -> {
+            try {
+                decryptedValues[i] = decryptedSecretCache.decrypt(distinctSecrets.get(i));
+            } catch (Exception e) {
+                decryptedValues[i] = null;
+            }
+        });
+
+        Map<Long, String> values = new HashMap<>();
+        for (int i = 0; i < decryptedValues.length; i++) {
+            if (decryptedValues[i] == null) {
+                logger.error("Could not decrypt the value of secret {}", distinctSecrets.get(i).getId());
+                return null;
+            }
+            values.put(distinctSecrets.get(i).getId(), decryptedValues[i]);
+            legacySecretMigrator.migrateLater(distinctSecrets.get(i));
+        }
+
+        Map<Long, Map<String, String>> byRepository = new HashMap<>();
+        for (RepositorySecret row : rows) {
+            Map<String, String> repositorySecrets =
+                    byRepository.computeIfAbsent(row.repositoryId(), id -> new LinkedHashMap<>());
+            if (row.secret() != null) {
+                // Repositories that had duplicate keys before keys were tracked resolve to the oldest secret
+                repositorySecrets.putIfAbsent(row.secret().getSecretKey(), values.get(row.secret().getId()));
+            }
+        }
+
+        ResolvedSecretsDTO resolved = new ResolvedSecretsDTO();
+        for (Long id : ids) {
+            if (byRepository.containsKey(id)) {
+                resolved.getRepositories().put(id, byRepository.get(id));
+            } else {
+                resolved.getNotFound().add(id);
+            }
+        }
+
+        return resolved;
+    }
+}
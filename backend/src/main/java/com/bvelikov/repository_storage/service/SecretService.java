@@ -1,20 +1,41 @@
 package com.bvelikov.repository_storage.service;
 
+import com.bvelikov.repository_storage.dto.RepositoryDTO;
 import com.bvelikov.repository_storage.dto.SecretDTO;
+import com.bvelikov.repository_storage.dto.SecretImportResultDTO;
+import com.bvelikov.repository_storage.dto.SecretPageDTO;
+import com.bvelikov.repository_storage.model.ChangeTimestamps;
 import com.bvelikov.repository_storage.model.Repository;
 import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.model.Tombstone;
 import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.RepositorySecretKeys;
+import com.bvelikov.repository_storage.repository.SecretListRow;
 import com.bvelikov.repository_storage.repository.SecretRepository;
-import com.bvelikov.repository_storage.security.encryption.EncryptionUtil;
+import com.bvelikov.repository_storage.repository.TombstoneRepository;
+import com.bvelikov.repository_storage.security.encryption.EnvelopeEncryption;
+import com.bvelikov.repository_storage.verification.VerificationCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class SecretService {
@@ -24,14 +45,37 @@ public class SecretService {
     @Autowired
     private RepositoryRepository repositoryRepository;
 
+    @Autowired
+    private RepositorySecretKeys repositorySecretKeys;
+
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private EnvelopeEncryption envelopeEncryption;
+
+    @Autowired
+    private VerificationCache verificationCache;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Value("${repository-storage.secret-import.max-size:10000}")
+    private int maxImportSize;
+
+    @Value("${repository-storage.list.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${repository-storage.list.max-page-size:1000}")
+    private int maxPageSize;
+
     /**
-     * A method that lists all secrets.
+     * A method that lists all secrets. Only the ids and keys are read, without loading entities.
      *
      * @return A response entity of a list containing all secrets in the database.
      */
-    @GetMapping("/list")
     public ResponseEntity<List<SecretDTO>> getAllSecrets() {
-        List<Secret> secrets = secretRepository.findAll();
+        List<SecretListRow> secrets = secretRepository.findAllListRows();
 
         List<SecretDTO> dtos = new ArrayList<>();
         secrets.forEach(secret -> dtos.add(SecretDTO.toDTO(secret, 0L)));
@@ -39,6 +83,35 @@ public class SecretService {
         return ResponseEntity.ok(dtos);
     }
 
+    /**
+     * A method that lists a single page of secrets, using the secret id as a cursor. Only the ids and keys are read,
+     * without loading entities.
+     *
+     * @param after the cursor returned with the previous page, null for the first page
+     * @param size the number of secrets in the page, null for the default page size, capped at the configured maximum
+     *             page size
+     * @return Response entity with response code 200 and body containing the page and the cursor for the next page
+     *         (null if this is the last page),
+     *         response entity with response code 400 if the page size is not positive.
+     */
+    public ResponseEntity<SecretPageDTO> getSecretPage(Long after, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.min(size, maxPageSize);
+        if (pageSize <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<SecretListRow> secrets = secretRepository.findListRowsByIdGreaterThan(after == null ? 0L : after,
+                Limit.of(pageSize));
+
+        SecretPageDTO page = new SecretPageDTO();
+        secrets.forEach(secret -> page.getSecrets().add(SecretDTO.toDTO(secret, 0L)));
+        if (secrets.size() == pageSize) {
+            page.setNextCursor(secrets.get(secrets.size() - 1).id());
+        }
+
+        return ResponseEntity.ok(page);
+    }
+
     /**
      * A method that saves a secret into the database.
      *
@@ -46,22 +119,19 @@ public class SecretService {
      * @return Response entity with response code 200 and body containing the newly saved secret,
      *         response entity with response code 400 and empty body if a secret with this key is already present
      *         for this repository,
-     *         response entity with response code 404 and empty body if the repository for this secret does not exist.
+     *         response entity with response code 404 and empty body if the repository for this secret does not exist,
+     *         response entity with response code 500 and empty body if an error occurs while encrypting the value.
      */
+    @Transactional
     public ResponseEntity<SecretDTO> saveSecret(SecretDTO secretDTO) {
         Optional<Repository> potentialRepository = repositoryRepository.findById(secretDTO.getRepositoryId());
         if (potentialRepository.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        Optional<Secret> potentialSecret = secretRepository.findByRepositoriesInAndSecretKey(List.of(potentialRepository.get()), secretDTO.getSecretKey());
-        if (potentialSecret.isPresent()) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        String encryptedValue;
+        EnvelopeEncryption.EncryptedValue encryptedValue;
         try {
-            encryptedValue = EncryptionUtil.encrypt(secretDTO.getSecretValue());
+            encryptedValue = envelopeEncryption.encrypt(secretDTO.getSecretValue());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -70,16 +140,20 @@ public class SecretService {
 
         Secret secret = SecretDTO.fromDTO(secretDTO);
         secret.setId(null);
-        secret.setSecretValue(encryptedValue);
+        encryptedValue.applyTo(secret);
         secret.setRepositories(new HashSet<>());
-        secret.getRepositories().add(repository);
-        if (repository.getSecrets() == null) {
-            repository.setSecrets(new HashSet<>());
+        secretRepository.saveAndFlush(secret);
+
+        // The key is taken by the insert itself, so concurrent requests can not both add it. It is taken after the
+        // secret got its id, because the id generator uses a connection of its own.
+        if (!repositorySecretKeys.addSecret(repository.getId(), secret.getId(), secret.getSecretKey())) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.badRequest().build();
         }
-        repository.getSecrets().add(secret);
 
-        secretRepository.save(secret);
+        repository.markChanged();
         repositoryRepository.save(repository);
+        applicationEventPublisher.publishEvent(new ChangeEvent().changed(toDTO(repository)).changed(secret));
 
         SecretDTO responseSecretDTO = SecretDTO.toDTO(secret, repository.getId());
         responseSecretDTO.setSecretValue(null);
@@ -87,6 +161,124 @@ public class SecretService {
         return ResponseEntity.ok(responseSecretDTO);
     }
 
+    /**
+     * A method that saves many secrets into the database at once. The repositories and their existing secret keys
+     * are read with a single query, the values are encrypted in parallel, and the secrets are inserted in JDBC batches.
+     * A secret that can not be saved does not prevent the others from being saved.
+     *
+     * @param secretDTOs the secrets' details, each with the id of its repository, passed in the request's body
+     * @return Response entity with response code 200 and body containing a result for every secret, in request order,
+     *         with status code 200 and the new secret's id if the secret is saved,
+     *         status code 400 if the secret key or value is missing, or a secret with this key is already present for
+     *         the repository or earlier in the request,
+     *         status code 404 if the repository for this secret does not exist,
+     *         status code 500 if an error occurs while encrypting the value;
+     *         response entity with response code 400 and empty body if there are no secrets or more than the configured
+     *         maximum,
+     *         response entity with response code 409 and empty body if a concurrent request added one of the keys, in
+     *         which case no secret is saved.
+     */
+    @Transactional
+    public ResponseEntity<List<SecretImportResultDTO>> importSecrets(List<SecretDTO> secretDTOs) {
+        if (secretDTOs == null || secretDTOs.isEmpty() || secretDTOs.size() > maxImportSize) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Set<Long> repositoryIds = secretDTOs.stream()
+                .map(SecretDTO::getRepositoryId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Repository> repositories = new HashMap<>();
+        if (!repositoryIds.isEmpty()) {
+            repositoryRepository.findWithSecretsByIdIn(repositoryIds, Sort.by("id"))
+                    .forEach(repository -> repositories.put(repository.getId(), repository));
+        }
+
+        Map<Long, Set<String>> usedKeys = new HashMap<>();
+        repositories.values().forEach(repository -> usedKeys.put(repository.getId(), repository.getSecrets().stream()
+                .map(Secret::getSecretKey)
+                .collect(Collectors.toCollection(HashSet::new))));
+
+        List<SecretImportResultDTO> results = new ArrayList<>(secretDTOs.size());
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < secretDTOs.size(); i++) {
+            SecretDTO secretDTO = secretDTOs.get(i);
+
+            HttpStatus status;
+            if (secretDTO.getRepositoryId() == null || secretDTO.getSecretKey() == null
+                    || secretDTO.getSecretKey().isBlank() || secretDTO.getSecretValue() == null) {
+                status = HttpStatus.BAD_REQUEST;
+            } else if (!repositories.containsKey(secretDTO.getRepositoryId())) {
+                status = HttpStatus.NOT_FOUND;
+            } else if (!usedKeys.get(secretDTO.getRepositoryId()).add(secretDTO.getSecretKey())) {
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                status = HttpStatus.OK;
+                accepted.add(i);
+            }
+
+            results.add(new SecretImportResultDTO(i, secretDTO, status.value()));
+        }
+
+        // Each value is encrypted independently, with the cipher of the worker thread
+        EnvelopeEncryption.EncryptedValue[] encryptedValues = new EnvelopeEncryption.EncryptedValue[secretDTOs.size()];
+        accepted.parallelStream().forEach(i -> {
+            try {
+                encryptedValues[i] = envelopeEncryption.encrypt(secretDTOs.get(i).getSecretValue());
+            } catch (Exception e) {
+                encryptedValues[i] = null;
+            }
+        });
+
+        Map<Integer, Secret> secrets = new HashMap<>();
+        for (Integer i : accepted) {
+            if (encryptedValues[i] == null) {
+                results.get(i).setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                continue;
+            }
+
+            Repository repository = repositories.get(secretDTOs.get(i).getRepositoryId());
+
+            Secret secret = new Secret();
+            secret.setSecretKey(secretDTOs.get(i).getSecretKey());
+            encryptedValues[i].applyTo(secret);
+            secret.getRepositories().add(repository);
+            repository.getSecrets().add(secret);
+            repository.markChanged();
+
+            secrets.put(i, secret);
+        }
+
+        // Ids are assigned here, the rows are inserted in batches when the transaction is committed
+        secretRepository.saveAll(secrets.values());
+
+        try {
+            repositorySecretKeys.takeAll(secrets.values().stream()
+                    .map(secret -> new Object[]{
+                            secret.getRepositories().iterator().next().getId(), secret.getSecretKey()})
+                    .toList());
+        } catch (DuplicateKeyException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        secrets.forEach((i, secret) -> results.get(i).setId(secret.getId()));
+        secrets.values().forEach(secret -> secret.getRepositories()
+                .forEach(repository -> verificationCache.invalidate(repository.getId())));
+
+        if (!secrets.isEmpty()) {
+            ChangeEvent changeEvent = new ChangeEvent();
+            secrets.values().stream()
+                    .flatMap(secret -> secret.getRepositories().stream())
+                    .distinct()
+                    .forEach(changeEvent::changed);
+            secrets.values().forEach(changeEvent::changed);
+            applicationEventPublisher.publishEvent(changeEvent);
+        }
+
+        return ResponseEntity.ok(results);
+    }
+
     /**
      * A method that updates a secret.
      *
@@ -95,28 +287,31 @@ public class SecretService {
      * @return Response entity with response code 200 and body containing the updated secret,
      *         response entity with response code 404 if the secret or its repository do not exist.
      */
+    @Transactional
     public ResponseEntity<SecretDTO> updateSecret(Long id, SecretDTO secretDTO) {
         Optional<Repository> repository = repositoryRepository.findById(secretDTO.getRepositoryId());
         if (repository.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        Optional<Secret> potentialSecret = secretRepository.findById(id);
+        Optional<Secret> potentialSecret = secretRepository.findWithRepositoriesById(id);
         if (potentialSecret.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        String encryptedValue;
+        EnvelopeEncryption.EncryptedValue encryptedValue;
         try {
-            encryptedValue = EncryptionUtil.encrypt(secretDTO.getSecretValue());
+            encryptedValue = envelopeEncryption.encrypt(secretDTO.getSecretValue());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
 
         Secret secret = potentialSecret.get();
-        secret.setSecretValue(encryptedValue);
+        encryptedValue.applyTo(secret);
 
         secretRepository.save(secret);
+        secret.getRepositories().forEach(secretsRepository -> verificationCache.invalidate(secretsRepository.getId()));
+        applicationEventPublisher.publishEvent(new ChangeEvent().changed(secret));
 
         SecretDTO responseSecretDTO = SecretDTO.toDTO(secret, repository.get().getId());
         responseSecretDTO.setSecretValue(null);
@@ -128,8 +323,12 @@ public class SecretService {
      * A method that adds a secret to a repository.
      *
      * @param id the secret's id, passed as a path variable
-     * @return TODO: Fill in
+     * @param repositoryId the repository's id, passed as a request parameter
+     * @return Response entity with response code 200 and body containing the secret,
+     *         response entity with response code 400 if the repository already has another secret with this key,
+     *         response entity with response code 404 if the secret or the repository do not exist.
      */
+    @Transactional
     public ResponseEntity<SecretDTO> addSecretToRepository(Long id, Long repositoryId) {
         Optional<Repository> potentialRepository = repositoryRepository.findById(repositoryId);
         if (potentialRepository.isEmpty()) {
@@ -142,12 +341,19 @@ public class SecretService {
         }
 
         Secret secret = potentialSecret.get();
-        secret.getRepositories().add(potentialRepository.get());
-        secretRepository.save(secret);
+        if (repositoryRepository.hasSecret(repositoryId, id)) {
+            return ResponseEntity.ok(SecretDTO.toDTO(secret, repositoryId));
+        }
+
+        if (!repositorySecretKeys.addSecret(repositoryId, id, secret.getSecretKey())) {
+            return ResponseEntity.badRequest().build();
+        }
 
         Repository repository = potentialRepository.get();
-        repository.getSecrets().add(potentialSecret.get());
+        repository.markChanged();
         repositoryRepository.save(repository);
+        verificationCache.invalidate(repositoryId);
+        applicationEventPublisher.publishEvent(new ChangeEvent().changed(toDTO(repository)));
 
         SecretDTO secretDTO = SecretDTO.toDTO(secret, repositoryId);
 
@@ -161,6 +367,7 @@ public class SecretService {
      * @return Response entity with response code 204 if the secret is successfully deleted,
      *         response entity with response code 404 if the secret does not exist.
      */
+    @Transactional
     public ResponseEntity<Void> deleteSecret(Long id, Long repositoryId) {
         Optional<Repository> potentialRepository = repositoryRepository.findById(repositoryId);
         if (potentialRepository.isEmpty()) {
@@ -174,19 +381,27 @@ public class SecretService {
 
         Secret secret = potentialSecret.get();
         Repository repository = potentialRepository.get();
-        if (repository.getSecrets().contains(secret)) {
-            // Delete from repository
-            repository.getSecrets().remove(secret);
-            secret.getRepositories().remove(repository);
+        if (repositorySecretKeys.removeSecret(repositoryId, id, secret.getSecretKey())) {
+            ChangeEvent changeEvent = new ChangeEvent();
 
             // If the secret is not used by any repository, delete it
-            if (secret.getRepositories().isEmpty()) {
+            if (!secretRepository.findOrphanIdsByIdIn(List.of(id)).isEmpty()) {
                 secretRepository.delete(secret);
+                tombstoneRepository.save(new Tombstone(Tombstone.EntityType.SECRET, id, ChangeTimestamps.now()));
+                changeEvent.deleted(Tombstone.EntityType.SECRET, id);
             }
 
+            repository.markChanged();
             repositoryRepository.save(repository);
+            verificationCache.invalidate(repositoryId);
+            applicationEventPublisher.publishEvent(changeEvent.changed(toDTO(repository)));
         }
 
         return ResponseEntity.noContent().build();
     }
+
+    // Maps the repository with the ids and keys of its secrets, without loading the secrets
+    private RepositoryDTO toDTO(Repository repository) {
+        return RepositoryDTO.toDTOs(repositoryRepository.findListRowsById(repository.getId())).get(0);
+    }
 }
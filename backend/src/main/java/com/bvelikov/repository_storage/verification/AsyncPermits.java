@@ -0,0 +1,52 @@
+package com.bvelikov.repository_storage.verification;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A semaphore whose permits are acquired without blocking the calling thread. Waiting callers are granted permits in
+ * the order in which they asked for them.
+ */
+class AsyncPermits {
+    private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+
+    private int available;
+
+    AsyncPermits(int permits) {
+        this.available = permits;
+    }
+
+    /**
+     * @return A future that completes once a permit is granted
+     */
+    CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            waiting.add(permit);
+            return permit;
+        }
+    }
+
+    /**
+     * A method that returns a permit, handing it over to the longest waiting caller if there is one.
+     */
+    void release() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                available++;
+                return;
+            }
+        }
+
+        // Completed outside the lock, as it runs the next caller's verification
+        next.complete(null);
+    }
+}
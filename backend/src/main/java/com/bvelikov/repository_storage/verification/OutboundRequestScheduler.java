@@ -0,0 +1,174 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.model.RepositoryType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>This class schedules outbound calls to the repository providers, using a separate
+ * {@link ProviderRateLimiter} for each provider. The rate limiter keeps the budget reported by the provider per
+ * credential, keyed by a hash of the call's <i>Authorization</i> header, so the tokens are not kept in memory.</p>
+ *
+ * <p>For every provider it publishes the number of waiting calls as <i>provider.rate.limiter.queue.depth</i>, the
+ * lowest remaining budget of a credential as <i>provider.rate.limiter.remaining</i>, the time calls waited for the
+ * budget as <i>provider.rate.limiter.wait</i>, and the number of rejected and rate limited calls as
+ * <i>provider.rate.limiter.rejected</i> and <i>provider.rate.limiter.limited</i>. The latency of every call is
+ * published as <i>provider.requests</i>, tagged with the provider's response status.</p>
+ */
+@Component
+public class OutboundRequestScheduler {
+    private final Map<RepositoryType, ProviderRateLimiter> rateLimiters = new EnumMap<>(RepositoryType.class);
+
+    private final Map<RepositoryType, Timer> waitTimers = new EnumMap<>(RepositoryType.class);
+
+    private final Map<RepositoryType, Counter> rejectedCounters = new EnumMap<>(RepositoryType.class);
+
+    private final Map<RepositoryType, Counter> limitedCounters = new EnumMap<>(RepositoryType.class);
+
+    private final ProviderHttpClient providerHttpClient;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int maxRetries;
+
+    public OutboundRequestScheduler(VerificationProperties properties, ProviderHttpClient providerHttpClient,
+                                    MeterRegistry meterRegistry) {
+        this.providerHttpClient = providerHttpClient;
+        this.meterRegistry = meterRegistry;
+        this.maxRetries = properties.getRateLimit().getMaxRetries();
+
+        for (RepositoryType repositoryType : RepositoryType.values()) {
+            ProviderRateLimiter rateLimiter = new ProviderRateLimiter(properties.getRateLimit());
+            rateLimiters.put(repositoryType, rateLimiter);
+
+            String provider = repositoryType.name();
+            Gauge.builder("provider.rate.limiter.queue.depth", rateLimiter, ProviderRateLimiter::getQueueDepth)
+                    .description("Number of provider calls waiting for the rate limit budget")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            Gauge.builder("provider.rate.limiter.remaining", rateLimiter, ProviderRateLimiter::getRemaining)
+                    .description("Lowest remaining rate limit budget of a credential, -1 if unknown")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            waitTimers.put(repositoryType, Timer.builder("provider.rate.limiter.wait")
+                    .description("Time provider calls waited for the rate limit budget")
+                    .tag("provider", provider)
+                    .register(meterRegistry));
+            rejectedCounters.put(repositoryType, Counter.builder("provider.rate.limiter.rejected")
+                    .description("Provider calls rejected because the rate limit budget was not available in time")
+                    .tag("provider", provider)
+                    .register(meterRegistry));
+            limitedCounters.put(repositoryType, Counter.builder("provider.rate.limiter.limited")
+                    .description("Provider responses that rate limited the call")
+                    .tag("provider", provider)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * A method that sends a request to a provider once the provider's rate limit budget allows it, without blocking
+     * the calling thread. Calls that the provider rate limits are retried after the backoff determined by the
+     * provider's rate limiter, up to the configured number of retries.
+     *
+     * @param repositoryType the provider
+     * @param request the request
+     * @return A future of the provider's response, with the latency of the last call. The status code is 429 without
+     *         a latency if the call is rejected because the provider's budget will not be available within the
+     *         configured maximum wait.
+     */
+    public CompletableFuture<ProviderResponse> send(RepositoryType repositoryType, HttpRequest request) {
+        return send(repositoryType, request, 0);
+    }
+
+    private CompletableFuture<ProviderResponse> send(RepositoryType repositoryType, HttpRequest request, int attempt) {
+        String credential = credential(request);
+        return acquire(repositoryType, credential).thenCompose(allowed -> {
+            if (!allowed) {
+                return CompletableFuture.completedFuture(
+                        new ProviderResponse(HttpStatus.TOO_MANY_REQUESTS.value(), null));
+            }
+
+            long start = System.nanoTime();
+            return providerHttpClient.sendAsync(request)
+                    .whenComplete((response, exception) -> requestTimer(repositoryType, response, exception)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .thenCompose(response -> {
+                        Duration latency = Duration.ofNanos(System.nanoTime() - start);
+                        if (onResponse(repositoryType, credential, response) && attempt < maxRetries) {
+                            return send(repositoryType, request, attempt + 1);
+                        }
+
+                        return CompletableFuture.completedFuture(new ProviderResponse(response.statusCode(),
+                                response.headers().firstValue(HttpHeaders.ETAG).orElse(null), latency));
+                    });
+        });
+    }
+
+    private CompletableFuture<Boolean> acquire(RepositoryType repositoryType, String credential) {
+        return rateLimiters.get(repositoryType).acquire(credential).thenApply(waitedNanos -> {
+            if (waitedNanos.isEmpty()) {
+                rejectedCounters.get(repositoryType).increment();
+                return false;
+            }
+
+            waitTimers.get(repositoryType).record(waitedNanos.get(), TimeUnit.NANOSECONDS);
+            return true;
+        });
+    }
+
+    private Timer requestTimer(RepositoryType repositoryType, HttpResponse<?> response, Throwable exception) {
+        Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+                ? exception.getCause()
+                : exception;
+
+        return Timer.builder("provider.requests")
+                .description("Latency of provider calls, by response status or by the exception of failed calls")
+                .tag("provider", repositoryType.name())
+                .tag("status", response == null ? "NONE" : String.valueOf(response.statusCode()))
+                .tag("exception", cause == null ? "none" : cause.getClass().getSimpleName())
+                .register(meterRegistry);
+    }
+
+    private boolean onResponse(RepositoryType repositoryType, String credential, HttpResponse<?> response) {
+        boolean rateLimited = rateLimiters.get(repositoryType)
+                .onResponse(credential, response.statusCode(), response.headers());
+        if (rateLimited) {
+            limitedCounters.get(repositoryType).increment();
+        }
+
+        return rateLimited;
+    }
+
+    private static String credential(HttpRequest request) {
+        Optional<String> authorization = request.headers().firstValue(HttpHeaders.AUTHORIZATION);
+        if (authorization.isEmpty()) {
+            return "";
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(authorization.get().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.bvelikov.repository_storage.verification;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>This class is the HTTP client shared by all calls to repository providers.</p>
+ *
+ * <p>It wraps a single JDK {@link HttpClient}, which negotiates HTTP/2 where the provider supports it and keeps
+ * HTTP/1.1 connections alive in its internal pool, so consecutive calls to a provider reuse the same TLS session
+ * instead of performing a new handshake. The number of requests in flight and the total number of requests are
+ * published as the <i>provider.http.client.requests.active</i> and <i>provider.http.client.requests</i> metrics.</p>
+ *
+ * <p>The client keeps its default executor of platform threads, also when virtual threads are enabled with
+ * <i>spring.threads.virtual.enabled</i>. With a virtual-thread executor, TLS handshakes pinned the carrier thread and
+ * the connection hung.</p>
+ */
+@Component
+public class ProviderHttpClient {
+    private final HttpClient httpClient;
+
+    private final VerificationProperties properties;
+
+    private final AtomicInteger activeRequests = new AtomicInteger();
+
+    private final AtomicLong totalRequests = new AtomicLong();
+
+    public ProviderHttpClient(VerificationProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        Gauge.builder("provider.http.client.requests.active", activeRequests, AtomicInteger::get)
+                .description("Number of provider requests in flight")
+                .register(meterRegistry);
+        FunctionCounter.builder("provider.http.client.requests", totalRequests, AtomicLong::get)
+                .description("Number of provider requests sent since startup")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A method that creates a request builder for the given URI, with the configured read timeout.
+     *
+     * @param uri the URI of the request
+     * @return The request builder
+     */
+    public HttpRequest.Builder newRequest(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .timeout(properties.getReadTimeout());
+    }
+
+    /**
+     * A method that sends a request to a provider without blocking the calling thread. The response body is
+     * discarded.
+     *
+     * @param request the request
+     * @return A future of the response. It completes exceptionally with an {@link java.io.IOException} if the
+     *         provider could not be reached or did not respond in time.
+     */
+    public CompletableFuture<HttpResponse<Void>> sendAsync(HttpRequest request) {
+        activeRequests.incrementAndGet();
+        totalRequests.incrementAndGet();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, exception) -> activeRequests.decrementAndGet());
+    }
+
+    @PreDestroy
+    void close() {
+        httpClient.close();
+    }
+}
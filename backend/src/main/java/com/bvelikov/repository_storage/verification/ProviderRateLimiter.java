@@ -0,0 +1,222 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>This class limits the rate of calls to a single repository provider.</p>
+ *
+ * <p>Calls are taken from a token bucket refilled at the configured rate, which smooths all calls to the provider. The
+ * bucket is further limited by the budget the provider reports in its <i>X-RateLimit-Remaining</i> and
+ * <i>X-RateLimit-Reset</i> headers (or the <i>RateLimit-*</i> variants), and by <i>Retry-After</i>. Providers count
+ * this budget per credential, so it is kept per credential as well: a token that ran out of budget does not hold back
+ * calls made with other tokens. When the provider rate limits a call without saying when to retry, calls with the same
+ * credential are paused for an exponentially growing, randomly jittered backoff. Callers wait for the budget, without
+ * holding a thread, up to the configured maximum wait and are rejected if it would take longer.</p>
+ */
+public class ProviderRateLimiter {
+    private static final long UNKNOWN = -1;
+
+    private static final long MAX_SLEEP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Providers reset their budgets at least hourly, so the budget of a credential that was not used for longer is no
+     * longer relevant.
+     */
+    private static final Duration BUDGET_RETENTION = Duration.ofHours(1);
+
+    private final VerificationProperties.RateLimit properties;
+
+    private final LongSupplier nanoClock;
+
+    private final double tokensPerNano;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    private final Cache<String, Budget> budgets;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    public ProviderRateLimiter(VerificationProperties.RateLimit properties) {
+        this(properties, System::nanoTime);
+    }
+
+    ProviderRateLimiter(VerificationProperties.RateLimit properties, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.tokensPerNano = properties.getRequestsPerSecond() / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = properties.getBurst();
+        this.lastRefillNanos = nanoClock.getAsLong();
+        this.budgets = Caffeine.newBuilder()
+                .expireAfterAccess(BUDGET_RETENTION)
+                .ticker(nanoClock::getAsLong)
+                .build();
+    }
+
+    /**
+     * A method that waits, without blocking the calling thread, until a call to the provider is allowed.
+     *
+     * @param credential a key of the credential the call is made with, such as a hash of its token, or an empty
+     *                   string for anonymous calls
+     * @return A future of the time waited in nanoseconds, or of an empty optional if the call is rejected because the
+     *         budget will not be available within the configured maximum wait
+     */
+    public CompletableFuture<Optional<Long>> acquire(String credential) {
+        long start = nanoClock.getAsLong();
+        long deadline = start + properties.getMaxWait().toNanos();
+
+        queueDepth.incrementAndGet();
+        CompletableFuture<Optional<Long>> result = new CompletableFuture<>();
+        tryAcquire(budget(credential), start, deadline, result);
+
+        return result.whenComplete((waitedNanos, exception) -> queueDepth.decrementAndGet());
+    }
+
+    private void tryAcquire(Budget budget, long start, long deadline, CompletableFuture<Optional<Long>> result) {
+        long now = nanoClock.getAsLong();
+        long waitNanos = tryAcquire(budget, now);
+        if (waitNanos == 0) {
+            result.complete(Optional.of(now - start));
+        } else if (now + waitNanos > deadline) {
+            result.complete(Optional.empty());
+        } else {
+            // Re-check regularly, the budget may be restored by a response to another call
+            CompletableFuture.delayedExecutor(Math.min(waitNanos, MAX_SLEEP_NANOS), TimeUnit.NANOSECONDS)
+                    .execute(() -> tryAcquire(budget, start, deadline, result));
+        }
+    }
+
+    /**
+     * A method that updates the budget of a credential from a provider's response.
+     *
+     * @param credential the key of the credential the call was made with, as passed to {@link #acquire(String)}
+     * @param status the response status code
+     * @param headers the response headers
+     * @return True if the provider rate limited the call and it may be retried, false otherwise
+     */
+    public synchronized boolean onResponse(String credential, int status, HttpHeaders headers) {
+        long now = nanoClock.getAsLong();
+        Budget budget = budget(credential);
+
+        Optional<Long> reportedRemaining = header(headers, "X-RateLimit-Remaining", "RateLimit-Remaining");
+        reportedRemaining.ifPresent(value -> budget.remaining = value);
+        header(headers, "X-RateLimit-Reset", "RateLimit-Reset").ifPresent(epochSeconds -> budget.resetAtNanos =
+                now + TimeUnit.MILLISECONDS.toNanos(epochSeconds * 1000 - System.currentTimeMillis()));
+
+        boolean rateLimited = status == 429 || (status == 403 && budget.remaining == 0);
+        if (!rateLimited) {
+            budget.consecutiveRateLimits = 0;
+            return false;
+        }
+
+        budget.consecutiveRateLimits++;
+        Optional<Long> retryAfter = header(headers, "Retry-After");
+        if (retryAfter.isPresent()) {
+            budget.blockedUntilNanos = Math.max(budget.blockedUntilNanos,
+                    now + TimeUnit.SECONDS.toNanos(retryAfter.get()));
+        } else if (budget.remaining != 0 || budget.resetAtNanos <= now) {
+            budget.blockedUntilNanos = Math.max(budget.blockedUntilNanos,
+                    now + jitteredBackoffNanos(budget.consecutiveRateLimits));
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The number of callers waiting for the budget
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return The lowest number of calls left until a credential's budget resets, or -1 if the provider did not report
+     *         it for any credential
+     */
+    public synchronized long getRemaining() {
+        return budgets.asMap().values().stream()
+                .mapToLong(budget -> budget.remaining)
+                .filter(remaining -> remaining != UNKNOWN)
+                .min()
+                .orElse(UNKNOWN);
+    }
+
+    private Budget budget(String credential) {
+        return budgets.get(credential, key -> new Budget());
+    }
+
+    private synchronized long tryAcquire(Budget budget, long now) {
+        tokens = Math.min(properties.getBurst(), tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+
+        long waitNanos = Math.max(0, budget.blockedUntilNanos - now);
+        if (budget.remaining == 0) {
+            if (budget.resetAtNanos <= now) {
+                budget.remaining = UNKNOWN;
+            } else {
+                waitNanos = Math.max(waitNanos, budget.resetAtNanos - now);
+            }
+        }
+        if (tokens < 1) {
+            waitNanos = Math.max(waitNanos, (long) Math.ceil((1 - tokens) / tokensPerNano));
+        }
+
+        if (waitNanos > 0) {
+            return waitNanos;
+        }
+
+        tokens--;
+        if (budget.remaining > 0) {
+            budget.remaining--;
+        }
+
+        return 0;
+    }
+
+    private long jitteredBackoffNanos(int consecutiveRateLimits) {
+        long base = properties.getBackoffBase().toNanos();
+        long exponential = base << Math.min(consecutiveRateLimits - 1, 20);
+        long cap = Math.min(properties.getBackoffMax().toNanos(), exponential);
+
+        return ThreadLocalRandom.current().nextLong(base / 2, Math.max(cap, base / 2 + 1) + 1);
+    }
+
+    private static Optional<Long> header(HttpHeaders headers, String... names) {
+        for (String name : names) {
+            Optional<String> value = headers.firstValue(name);
+            if (value.isPresent()) {
+                try {
+                    return Optional.of(Long.parseLong(value.get().trim()));
+                } catch (NumberFormatException e) {
+                    // Ignore values in other formats, such as an HTTP date in Retry-After
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * The budget the provider reported for a single credential. It is guarded by the rate limiter's lock.
+     */
+    private static class Budget {
+        private long remaining = UNKNOWN;
+
+        private long resetAtNanos;
+
+        private long blockedUntilNanos;
+
+        private int consecutiveRateLimits;
+    }
+}
@@ -0,0 +1,23 @@
+package com.bvelikov.repository_storage.verification;
+
+import java.time.Duration;
+
+/**
+ * The response of a repository provider to a verification call.
+ *
+ * @param status the status code of the response
+ * @param eTag the ETag of the response, or null if the provider did not return one
+ * @param latency the time the provider took to respond, without the time the call waited for permits or for the rate
+ *                limit budget, or null if the provider was not called
+ */
+public record ProviderResponse(int status, String eTag, Duration latency) {
+    /**
+     * Creates a response that was not received from the provider.
+     *
+     * @param status the status code of the response
+     * @param eTag the ETag of the response, or null
+     */
+    public ProviderResponse(int status, String eTag) {
+        this(status, eTag, null);
+    }
+}
@@ -0,0 +1,190 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.model.ChangeTimestamps;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * <p>This class verifies the secrets of all repositories in the background and stores the result with each
+ * repository, so the listings show the health of the tokens without calling the providers.</p>
+ *
+ * <p>Every repository is verified once per configured window. The scheduler runs at a fixed rate and verifies the
+ * share of all repositories that falls on one interval, so the provider calls are spread evenly over the window. The
+ * number of repositories is counted again only after the configured count refresh. Repositories that were created or
+ * changed since their last verification are verified first, and repositories whose verification failed are verified
+ * again after a short retry time instead of a whole window.</p>
+ *
+ * <p>A run is started on the application task executor and does not hold a thread while it waits for the providers,
+ * so the shared task scheduler is never blocked. A run that is due while the previous one is still waiting for the
+ * providers is skipped.</p>
+ *
+ * <p>Every verification calls the provider, the verification cache is not read. The stored latency is the time the
+ * provider took to respond, without the time the call waited for permits or for the rate limit budget.</p>
+ *
+ * <p>The results are written without a new change time, so they do not mark the repositories as changed in the change
+ * feed. A result is only stored if the repository did not change while it was verified, as the changed repository is
+ * verified again first anyway. The results are written with bulk updates, so Hibernate evicts the cached repositories
+ * and invalidates the cached queries reading them.</p>
+ */
+@Component
+public class RepositoryHealthScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryHealthScheduler.class);
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Autowired
+    private RepositoryRepository repositoryRepository;
+
+    @Autowired
+    private RepositoryVerificationService repositoryVerificationService;
+
+    @Autowired
+    private VerificationProperties properties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    private long repositoryCount;
+
+    private Instant countedAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (properties.getHealth().isEnabled()) {
+            Duration interval = properties.getHealth().getInterval();
+            taskScheduler.scheduleAtFixedRate(this::run, Instant.now().plus(interval), interval);
+        }
+    }
+
+    private void run() {
+        if (!running.compareAndSet(false, true)) {
+            logger.debug("Scheduled repository verification skipped, the previous run is not finished");
+            return;
+        }
+
+        // An exception would cancel all following runs
+        try {
+            CompletableFuture.supplyAsync(this::verifyDueAsync, taskExecutor)
+                    .thenCompose(Function.identity())
+                    .whenComplete((verified, exception) -> {
+                        running.set(false);
+                        if (exception != null) {
+                            logger.error("Scheduled repository verification failed", exception);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            running.set(false);
+            logger.error("Scheduled repository verification failed", e);
+        }
+    }
+
+    /**
+     * A method that verifies the repositories that are due, but not more than the share of all repositories that
+     * falls on one interval of the window, and stores the results. It waits until all verifications are finished.
+     *
+     * @return The number of verified repositories
+     */
+    public int verifyDue() {
+        return verifyDueAsync().join();
+    }
+
+    /**
+     * A method that starts the verification of the repositories that are due, like {@link #verifyDue()}. The results
+     * are stored on the application task executor once all verifications are finished.
+     *
+     * @return The number of verified repositories, once their results are stored
+     */
+    public CompletableFuture<Integer> verifyDueAsync() {
+        VerificationProperties.Health health = properties.getHealth();
+
+        long total = countRepositories();
+        if (total == 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        long share = Math.ceilDiv(total * health.getInterval().toMillis(), Math.max(1, health.getWindow().toMillis()));
+        int limit = (int) Math.min(Integer.MAX_VALUE, Math.max(1, share));
+
+        List<Long> ids = repositoryRepository.findIdsDueForVerification(ChangeTimestamps.now(), Limit.of(limit));
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        List<Repository> repositories = repositoryRepository.findWithSecretsByIdIn(ids, Sort.by("id"));
+        List<CompletableFuture<ProviderResponse>> responses = new ArrayList<>();
+        for (Repository repository : repositories) {
+            CompletableFuture<ProviderResponse> response;
+            try {
+                response = repositoryVerificationService.verifyUncachedAsync(repository);
+            } catch (RuntimeException e) {
+                response = CompletableFuture.completedFuture(
+                        new ProviderResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), null));
+            }
+
+            responses.add(response.exceptionally(exception ->
+                    new ProviderResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), null)));
+        }
+
+        return CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new))
+                .thenApplyAsync(ignored -> transactionTemplate.execute(transactionStatus -> {
+                    for (int i = 0; i < repositories.size(); i++) {
+                        storeResult(repositories.get(i), responses.get(i).join());
+                    }
+                    return repositories.size();
+                }), taskExecutor);
+    }
+
+    private long countRepositories() {
+        Instant now = Instant.now();
+        if (countedAt == null || !now.isBefore(countedAt.plus(properties.getHealth().getCountRefresh()))) {
+            repositoryCount = repositoryRepository.count();
+            countedAt = now;
+        }
+        return repositoryCount;
+    }
+
+    private void storeResult(Repository repository, ProviderResponse response) {
+        VerificationProperties.Health health = properties.getHealth();
+        Instant now = ChangeTimestamps.now();
+        Instant nextDue = response.status() == HttpStatus.OK.value()
+                ? now.plus(health.getWindow())
+                : now.plus(health.getFailureRetry());
+
+        // The provider's rate limit budget ran out, which says nothing about the token, so only retry soon
+        if (response.status() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            repositoryRepository.updateHealthDueAt(repository.getId(), repository.getUpdatedAt(), nextDue);
+            return;
+        }
+
+        Integer latencyMillis = response.latency() == null
+                ? null
+                : (int) Math.min(Integer.MAX_VALUE, response.latency().toMillis());
+        repositoryRepository.updateHealth(repository.getId(), repository.getUpdatedAt(), response.status(),
+                latencyMillis, now, nextDue);
+    }
+}
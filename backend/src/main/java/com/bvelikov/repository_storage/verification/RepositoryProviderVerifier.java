@@ -0,0 +1,35 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.RepositoryType;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>A verifier of repositories hosted by a single repository provider.</p>
+ *
+ * <p>Implementations are Spring beans picked up by {@link RepositoryVerificationService}, one for each
+ * {@link RepositoryType}. They must not block the calling thread and must send their calls through the shared
+ * {@link OutboundRequestScheduler}, so they use the shared connection pool, timeouts and rate limiting.</p>
+ */
+public interface RepositoryProviderVerifier {
+    /**
+     * @return The provider whose repositories this verifier verifies
+     */
+    RepositoryType getRepositoryType();
+
+    /**
+     * A method that asks the provider if a token grants access to a repository.
+     *
+     * @param repository the repository, hosted by this verifier's provider
+     * @param token the decrypted token, or null to check anonymous access
+     * @param eTag the ETag of the provider's last successful response for this repository and token, or null. If it
+     *             is passed, the call is conditional and the provider responds with status code 304 if nothing
+     *             changed.
+     * @return A future of the provider's response. The status code is 400 if the repository's url is not a valid url
+     *         of this provider, and 429 if the call was rejected by the rate limiter. The future completes
+     *         exceptionally with an {@link java.io.IOException} if the provider could not be reached or did not
+     *         respond in time.
+     */
+    CompletableFuture<ProviderResponse> verify(Repository repository, String token, String eTag);
+}
@@ -0,0 +1,256 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.dto.BulkVerificationRequestDTO;
+import com.bvelikov.repository_storage.dto.VerificationResultDTO;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.RepositoryType;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.security.encryption.DecryptedSecretCache;
+import com.bvelikov.repository_storage.security.encryption.LegacySecretMigrator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * <p>This class verifies repository secrets against the repository providers. The provider specific calls are made
+ * by the {@link RepositoryProviderVerifier} beans, one for each {@link RepositoryType}.</p>
+ *
+ * <p>Verifications do not block threads while they wait for a provider. Calls to each provider are limited by a
+ * separate set of permits, so a bulk verification can not flood a single provider, and a slow provider does not hold
+ * back verifications of repositories hosted elsewhere.</p>
+ */
+@Service
+public class RepositoryVerificationService {
+    private final Map<RepositoryType, RepositoryProviderVerifier> verifiers = new EnumMap<>(RepositoryType.class);
+
+    private final Map<RepositoryType, AsyncPermits> providerPermits = new EnumMap<>(RepositoryType.class);
+
+    @Autowired
+    private RepositoryRepository repositoryRepository;
+
+    @Autowired
+    private VerificationProperties properties;
+
+    @Autowired
+    private VerificationCache verificationCache;
+
+    @Autowired
+    private DecryptedSecretCache decryptedSecretCache;
+
+    @Autowired
+    private LegacySecretMigrator legacySecretMigrator;
+
+    @Autowired
+    private List<RepositoryProviderVerifier> providerVerifiers;
+
+    @PostConstruct
+    void initializeProviders() {
+        for (RepositoryProviderVerifier verifier : providerVerifiers) {
+            if (verifiers.putIfAbsent(verifier.getRepositoryType(), verifier) != null) {
+                throw new IllegalStateException("More than one verifier of " + verifier.getRepositoryType());
+            }
+        }
+
+        for (RepositoryType repositoryType : RepositoryType.values()) {
+            providerPermits.put(repositoryType, new AsyncPermits(properties.getMaxConcurrency(repositoryType)));
+        }
+    }
+
+    /**
+     * A method that verifies if a repository's secrets are correct and waits for the result. The repository's
+     * secrets must be initialized.
+     *
+     * @param repository the repository to verify
+     * @return The status codes described in {@link #verifyAsync(Repository)}
+     */
+    public HttpStatusCode verify(Repository repository) {
+        return verifyAsync(repository).join();
+    }
+
+    /**
+     * A method that verifies if a repository's secrets are correct. The repository's secrets must be initialized.
+     * A cached result is returned if the repository was verified with the same secrets within the cache TTL. If a
+     * cached result with an ETag exists, the provider call is conditional and a <i>304 Not Modified</i> response
+     * confirms the cached result.
+     *
+     * @param repository the repository to verify
+     * @return A future that completes with
+     *         status code 200 if the secrets are correct,
+     *         status code 400 if the repository type is not supported, the repository has more than one secret or
+     *         its url is not a valid repository url,
+     *         status code 429 if the provider's rate limit budget is not available within the configured maximum wait,
+     *         status code 500 if an error occurs while decrypting the secret,
+     *         status code 503 if the repository provider could not be reached,
+     *         status code 504 if the repository provider did not respond within the read timeout,
+     *         status code of the response from the repository provider if the secret is wrong.
+     */
+    public CompletableFuture<HttpStatusCode> verifyAsync(Repository repository) {
+        return verifyAsync(repository, true).thenApply(response -> HttpStatusCode.valueOf(response.status()));
+    }
+
+    /**
+     * A method that verifies if a repository's secrets are correct, always by calling the provider. The verification
+     * cache is not read, but it is updated with the result. The repository's secrets must be initialized.
+     *
+     * @param repository the repository to verify
+     * @return A future that completes with the status codes described in {@link #verifyAsync(Repository)}, and the
+     *         latency of the provider's response. The latency is null if the provider was not called or did not
+     *         respond.
+     */
+    public CompletableFuture<ProviderResponse> verifyUncachedAsync(Repository repository) {
+        return verifyAsync(repository, false);
+    }
+
+    private CompletableFuture<ProviderResponse> verifyAsync(Repository repository, boolean useCache) {
+        RepositoryType repositoryType = repository.getRepositoryType();
+        RepositoryProviderVerifier verifier = repositoryType == null ? null : verifiers.get(repositoryType);
+        if (verifier == null || repository.getSecrets().size() > 1) {
+            return CompletableFuture.completedFuture(new ProviderResponse(HttpStatus.BAD_REQUEST.value(), null));
+        }
+
+        String fingerprint = VerificationCache.fingerprint(repository);
+        VerificationCache.Entry cached = useCache ? verificationCache.get(repository.getId(), fingerprint) : null;
+        if (cached != null && verificationCache.isFresh(cached)) {
+            return CompletableFuture.completedFuture(new ProviderResponse(cached.status(), cached.eTag()));
+        }
+
+        String token = null;
+        if (repository.getSecrets().size() == 1) {
+            Secret secret = repository.getSecrets().iterator().next();
+            try {
+                token = decryptedSecretCache.decrypt(secret);
+            } catch (Exception e) {
+                return CompletableFuture.completedFuture(
+                        new ProviderResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), null));
+            }
+            legacySecretMigrator.migrateLater(secret);
+        }
+
+        String decryptedToken = token;
+        String eTag = cached == null ? null : cached.eTag();
+        AsyncPermits permits = providerPermits.get(repositoryType);
+
+        return permits.acquire()
+                .thenCompose(permit -> verifier.verify(repository, decryptedToken, eTag))
+                .whenComplete((response, exception) -> permits.release())
+                .thenApply(response -> toResult(repository, fingerprint, cached, response))
+                .exceptionally(exception -> new ProviderResponse(toStatus(exception).value(), null));
+    }
+
+    private ProviderResponse toResult(Repository repository, String fingerprint, VerificationCache.Entry cached,
+                                      ProviderResponse response) {
+        // The repository and the token's access to it did not change since the cached verification
+        if (response.status() == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+            verificationCache.confirm(repository.getId(), cached);
+            return new ProviderResponse(cached.status(), cached.eTag(), response.latency());
+        }
+
+        // Any successful response means that the token is valid
+        int status = HttpStatusCode.valueOf(response.status()).is2xxSuccessful()
+                ? HttpStatus.OK.value()
+                : response.status();
+        verificationCache.put(repository.getId(), fingerprint, status, response.eTag());
+
+        return new ProviderResponse(status, response.eTag(), response.latency());
+    }
+
+    private static HttpStatusCode toStatus(Throwable exception) {
+        Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+                ? exception.getCause()
+                : exception;
+
+        if (cause instanceof HttpTimeoutException) {
+            return HttpStatus.GATEWAY_TIMEOUT;
+        } else if (cause instanceof IOException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    /**
+     * A method that verifies many repositories concurrently. The results are passed to the consumer, on the calling
+     * thread, in the order in which the verifications finish. Repositories are loaded in batches, so only a few
+     * batches are kept in memory at a time.
+     *
+     * @param request the ids of the repositories to verify, or a flag that all repositories should be verified
+     * @param onResult the consumer of the verification results. Repositories that do not exist are reported with
+     *                 status code 404.
+     * @exception InterruptedException if the calling thread is interrupted while waiting for results
+     */
+    public void verifyBulk(BulkVerificationRequestDTO request, Consumer<VerificationResultDTO> onResult)
+            throws InterruptedException {
+        int batchSize = properties.getBatchSize();
+        List<Long> requestedIds = request.isAll() ? List.of() : request.getIds().stream().distinct().toList();
+
+        BlockingQueue<VerificationResultDTO> finished = new LinkedBlockingQueue<>();
+        int pending = 0;
+        int offset = 0;
+        long cursor = 0L;
+
+        while (true) {
+            List<Long> ids;
+            if (request.isAll()) {
+                ids = repositoryRepository.findIdsByIdGreaterThan(cursor, Limit.of(batchSize));
+            } else {
+                ids = requestedIds.subList(offset, Math.min(offset + batchSize, requestedIds.size()));
+                offset += ids.size();
+            }
+
+            if (ids.isEmpty()) {
+                break;
+            }
+            cursor = ids.get(ids.size() - 1);
+
+            Set<Long> missingIds = new HashSet<>(ids);
+            for (Repository repository : repositoryRepository.findWithSecretsByIdIn(ids, Sort.by("id"))) {
+                missingIds.remove(repository.getId());
+                verifyToResult(repository).thenAccept(finished::add);
+                pending++;
+            }
+            missingIds.forEach(id -> onResult.accept(new VerificationResultDTO(id, HttpStatus.NOT_FOUND.value())));
+
+            // Forward finished verifications and wait before loading more repositories than a couple of batches
+            for (VerificationResultDTO result = finished.poll(); result != null; result = finished.poll()) {
+                onResult.accept(result);
+                pending--;
+            }
+            for (; pending > 2 * batchSize; pending--) {
+                onResult.accept(finished.take());
+            }
+        }
+
+        for (; pending > 0; pending--) {
+            onResult.accept(finished.take());
+        }
+    }
+
+    private CompletableFuture<VerificationResultDTO> verifyToResult(Repository repository) {
+        CompletableFuture<HttpStatusCode> status;
+        try {
+            status = verifyAsync(repository);
+        } catch (RuntimeException e) {
+            status = CompletableFuture.completedFuture(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        return status.handle((result, exception) -> new VerificationResultDTO(repository.getId(),
+                exception == null ? result.value() : HttpStatus.INTERNAL_SERVER_ERROR.value()));
+    }
+}
@@ -0,0 +1,136 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * <p>This class caches the results of repository verifications.</p>
+ *
+ * <p>A result is stored together with a fingerprint of the repository's encrypted secrets, so it is only returned
+ * while the secrets are unchanged. Results are returned without contacting the provider until their TTL passes.
+ * After that they are kept for the configured retention, so the provider's ETag can be sent in an
+ * <i>If-None-Match</i> header and a <i>304 Not Modified</i> response confirms the cached result.</p>
+ */
+@Component
+public class VerificationCache {
+    private static final Set<Integer> CACHEABLE_STATUSES = Set.of(200, 401, 404);
+
+    private final VerificationProperties.Cache properties;
+
+    private final Cache<Long, Entry> cache;
+
+    public VerificationCache(VerificationProperties verificationProperties) {
+        this.properties = verificationProperties.getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getRetention())
+                .build();
+    }
+
+    /**
+     * A method that returns the cached verification result of a repository.
+     *
+     * @param repositoryId the repository id
+     * @param secretFingerprint the fingerprint of the repository's current secrets
+     * @return The cached result, or null if there is none or it was stored for different secrets
+     */
+    public Entry get(Long repositoryId, String secretFingerprint) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+
+        Entry entry = cache.getIfPresent(repositoryId);
+        if (entry == null || !entry.secretFingerprint().equals(secretFingerprint)) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * A method that checks if a cached result can be returned without contacting the provider.
+     *
+     * @param entry the cached result
+     * @return True if the result is younger than the configured TTL, false otherwise
+     */
+    public boolean isFresh(Entry entry) {
+        return entry.verifiedAt().plus(properties.getTtl()).isAfter(Instant.now());
+    }
+
+    /**
+     * A method that caches a verification result. Results that depend on the provider's availability, such as
+     * server errors or rate limiting, are not cached.
+     *
+     * @param repositoryId the repository id
+     * @param secretFingerprint the fingerprint of the secrets the repository was verified with
+     * @param status the verification status code
+     * @param eTag the ETag returned by the provider, or null if there was none
+     */
+    public void put(Long repositoryId, String secretFingerprint, int status, String eTag) {
+        if (properties.isEnabled() && CACHEABLE_STATUSES.contains(status)) {
+            cache.put(repositoryId, new Entry(secretFingerprint, status, eTag, Instant.now()));
+        }
+    }
+
+    /**
+     * A method that marks a cached result as confirmed by the provider, restarting its TTL.
+     *
+     * @param repositoryId the repository id
+     * @param entry the confirmed result
+     */
+    public void confirm(Long repositoryId, Entry entry) {
+        put(repositoryId, entry.secretFingerprint(), entry.status(), entry.eTag());
+    }
+
+    /**
+     * A method that removes the cached result of a repository. It must be called whenever the repository's url or
+     * secrets change.
+     *
+     * @param repositoryId the repository id
+     */
+    public void invalidate(Long repositoryId) {
+        cache.invalidate(repositoryId);
+    }
+
+    /**
+     * A method that computes a fingerprint of a repository's url and secrets. The fingerprint is a hash of the url
+     * and the encrypted secret values, so it changes whenever the url changes or a secret is updated, added or
+     * removed. The repository's secrets must be initialized.
+     *
+     * @param repository the repository
+     * @return The fingerprint
+     */
+    public static String fingerprint(Repository repository) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((repository.getUrl() + ";").getBytes(StandardCharsets.UTF_8));
+            repository.getSecrets().stream()
+                    .sorted(Comparator.comparing(Secret::getId))
+                    .forEach(secret -> {
+                        digest.update((secret.getId() + ":" + secret.getSecretValue() + ":")
+                                .getBytes(StandardCharsets.UTF_8));
+                        if (secret.getEncryptedValue() != null) {
+                            digest.update(secret.getEncryptedValue());
+                        }
+                        digest.update((byte) ';');
+                    });
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Entry(String secretFingerprint, int status, String eTag, Instant verifiedAt) { }
+}
@@ -0,0 +1,318 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.model.RepositoryType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration of repository verification, bound to the <i>repository-storage.verification</i> properties.
+ */
+@ConfigurationProperties(prefix = "repository-storage.verification")
+public class VerificationProperties {
+    private String gitHubApiUrl = "https://api.github.com";
+
+    private String gitLabApiUrl = "https://gitlab.com";
+
+    private String bitBucketApiUrl = "https://api.bitbucket.org";
+
+    private int maxConcurrency = 16;
+
+    private Map<RepositoryType, Integer> maxConcurrencyPerProvider = new EnumMap<>(RepositoryType.class);
+
+    private int batchSize = 100;
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    private Duration readTimeout = Duration.ofSeconds(10);
+
+    private final Cache cache = new Cache();
+
+    private final RateLimit rateLimit = new RateLimit();
+
+    private final Health health = new Health();
+
+    public String getGitHubApiUrl() {
+        return gitHubApiUrl;
+    }
+
+    public void setGitHubApiUrl(String gitHubApiUrl) {
+        this.gitHubApiUrl = gitHubApiUrl;
+    }
+
+    public String getGitLabApiUrl() {
+        return gitLabApiUrl;
+    }
+
+    public void setGitLabApiUrl(String gitLabApiUrl) {
+        this.gitLabApiUrl = gitLabApiUrl;
+    }
+
+    public String getBitBucketApiUrl() {
+        return bitBucketApiUrl;
+    }
+
+    public void setBitBucketApiUrl(String bitBucketApiUrl) {
+        this.bitBucketApiUrl = bitBucketApiUrl;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Map<RepositoryType, Integer> getMaxConcurrencyPerProvider() {
+        return maxConcurrencyPerProvider;
+    }
+
+    public void setMaxConcurrencyPerProvider(Map<RepositoryType, Integer> maxConcurrencyPerProvider) {
+        this.maxConcurrencyPerProvider = maxConcurrencyPerProvider;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public Health getHealth() {
+        return health;
+    }
+
+    /**
+     * A method that returns the maximum number of concurrent verification calls to a provider.
+     *
+     * @param repositoryType the provider
+     * @return The provider specific limit if one is configured, the default limit otherwise
+     */
+    public int getMaxConcurrency(RepositoryType repositoryType) {
+        return maxConcurrencyPerProvider.getOrDefault(repositoryType, maxConcurrency);
+    }
+
+    /**
+     * Configuration of the verification result cache, bound to the <i>repository-storage.verification.cache</i>
+     * properties.
+     */
+    public static class Cache {
+        private boolean enabled = true;
+
+        private Duration ttl = Duration.ofMinutes(5);
+
+        private Duration retention = Duration.ofHours(1);
+
+        private long maxSize = 10_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return How long a cached result is returned without contacting the provider
+         */
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * @return How long a cached result is kept after it was last confirmed by the provider, so that its ETag can
+         *         be used for a conditional request once the result is no longer fresh
+         */
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * Configuration of the outbound rate limiting of provider calls, bound to the
+     * <i>repository-storage.verification.rate-limit</i> properties. Each provider gets its own token bucket with these
+     * settings, which is further limited by the budget the provider reports in its rate limit headers.
+     */
+    public static class RateLimit {
+        private double requestsPerSecond = 10;
+
+        private int burst = 20;
+
+        private Duration maxWait = Duration.ofSeconds(30);
+
+        private int maxRetries = 2;
+
+        private Duration backoffBase = Duration.ofSeconds(1);
+
+        private Duration backoffMax = Duration.ofMinutes(1);
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        /**
+         * @return How long a call may wait for the provider's budget before it is rejected
+         */
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        /**
+         * @return How many times a rate limited call is retried
+         */
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public Duration getBackoffBase() {
+            return backoffBase;
+        }
+
+        public void setBackoffBase(Duration backoffBase) {
+            this.backoffBase = backoffBase;
+        }
+
+        public Duration getBackoffMax() {
+            return backoffMax;
+        }
+
+        public void setBackoffMax(Duration backoffMax) {
+            this.backoffMax = backoffMax;
+        }
+    }
+
+    /**
+     * Configuration of the scheduled verification of all repositories, bound to the
+     * <i>repository-storage.verification.health</i> properties.
+     */
+    public static class Health {
+        private boolean enabled = true;
+
+        private Duration window = Duration.ofHours(6);
+
+        private Duration interval = Duration.ofSeconds(10);
+
+        private Duration failureRetry = Duration.ofMinutes(5);
+
+        private Duration countRefresh = Duration.ofMinutes(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return The time within which every repository is verified once, with the verifications spread evenly
+         *         over it
+         */
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        /**
+         * @return The time between two runs of the scheduler, each verifying its share of the window
+         */
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        /**
+         * @return How soon a repository whose verification failed is verified again
+         */
+        public Duration getFailureRetry() {
+            return failureRetry;
+        }
+
+        public void setFailureRetry(Duration failureRetry) {
+            this.failureRetry = failureRetry;
+        }
+
+        /**
+         * @return How long the number of repositories, which determines the share of each run, is reused before it
+         *         is counted again
+         */
+        public Duration getCountRefresh() {
+            return countRefresh;
+        }
+
+        public void setCountRefresh(Duration countRefresh) {
+            this.countRefresh = countRefresh;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.bvelikov.repository_storage.verification.provider;
+
+import com.bvelikov.repository_storage.model.RepositoryType;
+import com.bvelikov.repository_storage.verification.VerificationProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpRequest;
+import java.util.Optional;
+
+/**
+ * A verifier of Bitbucket repositories. It reads the repository through the
+ * <a href="https://developer.atlassian.com/cloud/bitbucket/rest/api-group-repositories/">Bitbucket Cloud REST API</a>.
+ */
+@Component
+public class BitBucketProviderVerifier extends HttpRepositoryProviderVerifier {
+    @Autowired
+    private VerificationProperties properties;
+
+    @Override
+    public RepositoryType getRepositoryType() {
+        return RepositoryType.BIT_BUCKET;
+    }
+
+    @Override
+    protected Optional<HttpRequest.Builder> newRequest(String owner, String name) {
+        // Bitbucket repositories belong to a workspace, which is not nested
+        if (owner.contains("/")) {
+            return Optional.empty();
+        }
+
+        return Optional.of(request(properties.getBitBucketApiUrl() + "/2.0/repositories/" + owner + "/" + name)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE));
+    }
+}
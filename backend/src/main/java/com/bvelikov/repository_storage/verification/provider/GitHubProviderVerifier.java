@@ -0,0 +1,36 @@
+package com.bvelikov.repository_storage.verification.provider;
+
+import com.bvelikov.repository_storage.model.RepositoryType;
+import com.bvelikov.repository_storage.verification.VerificationProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpRequest;
+import java.util.Optional;
+
+/**
+ * A verifier of GitHub repositories. It reads the repository through the
+ * <a href="https://docs.github.com/en/rest/repos/repos#get-a-repository">GitHub REST API</a>.
+ */
+@Component
+public class GitHubProviderVerifier extends HttpRepositoryProviderVerifier {
+    @Autowired
+    private VerificationProperties properties;
+
+    @Override
+    public RepositoryType getRepositoryType() {
+        return RepositoryType.GIT_HUB;
+    }
+
+    @Override
+    protected Optional<HttpRequest.Builder> newRequest(String owner, String name) {
+        // GitHub repositories are not nested
+        if (owner.contains("/")) {
+            return Optional.empty();
+        }
+
+        return Optional.of(request(properties.getGitHubApiUrl() + "/repos/" + owner + "/" + name)
+                .header(HttpHeaders.ACCEPT, "application/vnd.github+json"));
+    }
+}
@@ -0,0 +1,37 @@
+package com.bvelikov.repository_storage.verification.provider;
+
+import com.bvelikov.repository_storage.model.RepositoryType;
+import com.bvelikov.repository_storage.verification.VerificationProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * A verifier of GitLab repositories. It reads the project through the
+ * <a href="https://docs.gitlab.com/ee/api/projects.html#get-a-single-project">GitLab REST API</a>. Projects in
+ * subgroups are supported, the whole path is passed as the URL-encoded project id.
+ */
+@Component
+public class GitLabProviderVerifier extends HttpRepositoryProviderVerifier {
+    @Autowired
+    private VerificationProperties properties;
+
+    @Override
+    public RepositoryType getRepositoryType() {
+        return RepositoryType.GIT_LAB;
+    }
+
+    @Override
+    protected Optional<HttpRequest.Builder> newRequest(String owner, String name) {
+        String projectId = URLEncoder.encode(owner + "/" + name, StandardCharsets.UTF_8);
+
+        return Optional.of(request(properties.getGitLabApiUrl() + "/api/v4/projects/" + projectId)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE));
+    }
+}
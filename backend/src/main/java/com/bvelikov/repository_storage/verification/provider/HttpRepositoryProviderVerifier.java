@@ -0,0 +1,73 @@
+package com.bvelikov.repository_storage.verification.provider;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.RepositoryCoordinates;
+import com.bvelikov.repository_storage.verification.OutboundRequestScheduler;
+import com.bvelikov.repository_storage.verification.ProviderHttpClient;
+import com.bvelikov.repository_storage.verification.ProviderResponse;
+import com.bvelikov.repository_storage.verification.RepositoryProviderVerifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.net.http.HttpRequest;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A base class for verifiers that check a token by reading the repository through the provider's HTTP API. A
+ * subclass only describes the API call for the owner and name stored with the repository, the call itself is sent
+ * through the shared {@link OutboundRequestScheduler}.
+ */
+public abstract class HttpRepositoryProviderVerifier implements RepositoryProviderVerifier {
+    @Autowired
+    private ProviderHttpClient providerHttpClient;
+
+    @Autowired
+    private OutboundRequestScheduler outboundRequestScheduler;
+
+    /**
+     * A method that creates the API request reading a repository.
+     *
+     * @param owner the owner of the repository, including any subgroups, e.g. <i>group/subgroup</i>
+     * @param name the name of the repository
+     * @return The request, or an empty optional if the owner and name do not form a valid repository path for this
+     *         provider
+     */
+    protected abstract Optional<HttpRequest.Builder> newRequest(String owner, String name);
+
+    @Override
+    public CompletableFuture<ProviderResponse> verify(Repository repository, String token, String eTag) {
+        RepositoryCoordinates coordinates = repository.getCoordinates();
+        Optional<HttpRequest.Builder> request = Optional.empty();
+        try {
+            if (coordinates.provider() == getRepositoryType() && coordinates.owner() != null) {
+                request = newRequest(coordinates.owner(), coordinates.name());
+            }
+        } catch (IllegalArgumentException e) {
+            // The path contains characters that are not allowed in a URI
+            request = Optional.empty();
+        }
+
+        if (request.isEmpty()) {
+            return CompletableFuture.completedFuture(new ProviderResponse(HttpStatus.BAD_REQUEST.value(), null));
+        }
+
+        if (token != null) {
+            request.get().header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        if (eTag != null) {
+            request.get().header(HttpHeaders.IF_NONE_MATCH, eTag);
+        }
+
+        return outboundRequestScheduler.send(getRepositoryType(), request.get().GET().build());
+    }
+
+    /**
+     * @param uri the URI of the request
+     * @return A request builder with the shared read timeout
+     */
+    protected HttpRequest.Builder request(String uri) {
+        return providerHttpClient.newRequest(uri);
+    }
+}
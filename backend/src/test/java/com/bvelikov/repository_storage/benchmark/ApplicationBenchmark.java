@@ -0,0 +1,112 @@
+package com.bvelikov.repository_storage.benchmark;
+
+import com.bvelikov.repository_storage.RepositoryStorageApplication;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures listing and saving repositories end to end, over HTTP, against the application running with the
+ * embedded H2 database of the <i>test</i> profile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApplicationBenchmark {
+
+	@Param({"1000"})
+	private int repositoryCount;
+
+	private final AtomicLong savedRepositories = new AtomicLong();
+
+	private ConfigurableApplicationContext context;
+
+	private HttpClient httpClient;
+
+	private String baseUrl;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(RepositoryStorageApplication.class)
+				.profiles("test")
+				.properties("server.port=0",
+						"spring.jpa.properties.hibernate.generate_statistics=false",
+						"logging.level.root=WARN")
+				.run();
+
+		RepositoryRepository repositoryRepository = context.getBean(RepositoryRepository.class);
+		List<Repository> repositories = new ArrayList<>();
+		for (int i = 0; i < repositoryCount; i++) {
+			Repository repository = new Repository();
+			repository.setUrl("https://github.com/owner/repository-" + i);
+			repository.setSecrets(new HashSet<>());
+			repositories.add(repository);
+		}
+		repositoryRepository.saveAll(repositories);
+
+		int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+		baseUrl = "http://localhost:" + port + "/api/repository";
+		httpClient = HttpClient.newHttpClient();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		httpClient.close();
+		context.close();
+	}
+
+	@Benchmark
+	public String listAll() throws Exception {
+		return send(HttpRequest.newBuilder(URI.create(baseUrl + "/list")).GET());
+	}
+
+	@Benchmark
+	public String listPage() throws Exception {
+		return send(HttpRequest.newBuilder(URI.create(baseUrl + "/list/page?size=100")).GET());
+	}
+
+	@Benchmark
+	public String save() throws Exception {
+		String body = "{\"url\": \"https://gitlab.com/owner/saved-" + savedRepositories.incrementAndGet() + "\"}";
+		return send(HttpRequest.newBuilder(URI.create(baseUrl))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body)));
+	}
+
+	private String send(HttpRequest.Builder request) throws Exception {
+		HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("Unexpected status code " + response.statusCode());
+		}
+		return response.body();
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.bvelikov.repository_storage.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs the JMH benchmarks of this package and writes their results as JSON. Started by the <i>benchmark</i> Maven
+ * profile with a regular expression selecting the benchmarks and the path of the result file as arguments. The GC
+ * profiler adds the bytes allocated per operation (<i>gc.alloc.rate.norm</i>) to every result.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		String include = args.length > 0 ? args[0] : ".*";
+		Path result = args.length > 1 ? Path.of(args[1]) : Path.of("target", "benchmarks", "jmh-result.json");
+		Files.createDirectories(result.getParent());
+
+		Options options = new OptionsBuilder()
+				.include(BenchmarkRunner.class.getPackageName() + "\\..*" + include)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result(result.toString())
+				.build();
+
+		new Runner(options).run();
+	}
+
+}
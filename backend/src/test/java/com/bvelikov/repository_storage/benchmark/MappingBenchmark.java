@@ -0,0 +1,85 @@
+package com.bvelikov.repository_storage.benchmark;
+
+import com.bvelikov.repository_storage.dto.RepositoryDTO;
+import com.bvelikov.repository_storage.dto.SecretDTO;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping of large repository graphs to DTOs, as done by the listing endpoints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+	@Param({"1000"})
+	private int repositoryCount;
+
+	@Param({"1", "10"})
+	private int secretsPerRepository;
+
+	private List<Repository> repositories;
+
+	private List<Secret> secrets;
+
+	@Setup
+	public void setUp() {
+		repositories = new ArrayList<>();
+		secrets = new ArrayList<>();
+		long secretId = 0;
+		for (long id = 1; id <= repositoryCount; id++) {
+			Set<Secret> repositorySecrets = new HashSet<>();
+			for (int i = 0; i < secretsPerRepository; i++) {
+				Secret secret = new Secret();
+				secret.setId(++secretId);
+				secret.setSecretKey("key-" + i);
+				secret.setSecretValue("encrypted-value-" + secretId);
+				repositorySecrets.add(secret);
+				secrets.add(secret);
+			}
+
+			Repository repository = new Repository();
+			repository.setId(id);
+			repository.setUrl("https://github.com/owner/repository-" + id);
+			repository.setSecrets(repositorySecrets);
+			repositories.add(repository);
+		}
+	}
+
+	@Benchmark
+	public void repositoryToDTO(Blackhole blackhole) {
+		for (Repository repository : repositories) {
+			blackhole.consume(RepositoryDTO.toDTO(repository));
+		}
+	}
+
+	@Benchmark
+	public void secretToDTO(Blackhole blackhole) {
+		for (Secret secret : secrets) {
+			blackhole.consume(SecretDTO.toDTO(secret, 1L));
+		}
+	}
+
+}
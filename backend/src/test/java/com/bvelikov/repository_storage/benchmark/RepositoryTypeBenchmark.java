@@ -0,0 +1,51 @@
+package com.bvelikov.repository_storage.benchmark;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.RepositoryType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures detection of the repository provider from the repository url.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryTypeBenchmark {
+
+	@Param({
+			"https://github.com/owner/name",
+			"git@gitlab.com:group/subgroup/name.git",
+			"http://bitbucket.org/workspace/name",
+			"https://example.com/owner/name"
+	})
+	private String url;
+
+	private Repository repository;
+
+	@Setup
+	public void setUp() {
+		repository = new Repository();
+		repository.setUrl(url);
+	}
+
+	@Benchmark
+	public RepositoryType getRepositoryType() {
+		return repository.getRepositoryType();
+	}
+
+}
@@ -0,0 +1,154 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.dto.RepositoryDTO;
+import com.bvelikov.repository_storage.dto.SecretDTO;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.repository.TombstoneRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(properties = "repository-storage.changes.settle-time=0s")
+class ChangeFeedTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private TombstoneRepository tombstoneRepository;
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+		tombstoneRepository.deleteAll();
+	}
+
+	@Test
+	void changesSinceTokenContainOnlyWhatChanged() throws Exception {
+		long unchanged = createRepository("https://github.com/acme/unchanged");
+		long renamed = createRepository("https://github.com/acme/renamed");
+		long withSecret = createRepository("https://github.com/acme/with-secret");
+		long deleted = createRepository("https://github.com/acme/deleted");
+		long deletedSecret = createSecret(deleted, "deleted-token");
+
+		String token = read(get("/api/changes/latest")).get("nextToken").asText();
+		assertEquals(0, read(get("/api/changes").param("since", token)).get("repositories").size());
+
+		RepositoryDTO update = new RepositoryDTO();
+		update.setUrl("https://github.com/acme/renamed-again");
+		mockMvc.perform(put("/api/repository/{id}", renamed)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(update)))
+				.andExpect(status().isOk());
+		long createdSecret = createSecret(withSecret, "token");
+		mockMvc.perform(delete("/api/repository/{id}", deleted)).andExpect(status().isNoContent());
+
+		mockMvc.perform(get("/api/changes").param("since", token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories[*].id").value(containsInAnyOrder(
+						(int) renamed, (int) withSecret)))
+				.andExpect(jsonPath("$.repositories[?(@.id == " + withSecret + ")].secrets[*].secretKey")
+						.value(containsInAnyOrder("token")))
+				.andExpect(jsonPath("$.secrets[*].id").value(containsInAnyOrder((int) createdSecret)))
+				.andExpect(jsonPath("$.deleted", hasSize(2)))
+				.andExpect(jsonPath("$.deleted[*].id").value(containsInAnyOrder((int) deleted, (int) deletedSecret)))
+				.andExpect(jsonPath("$.hasMore").value(false));
+
+		assertTrue(repositoryRepository.existsById(unchanged));
+	}
+
+	@Test
+	void changesArePagedWithTheToken() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			createRepository("https://github.com/acme/repository-" + i);
+		}
+
+		int read = 0;
+		String token = null;
+		boolean hasMore = true;
+		while (hasMore) {
+			MockHttpServletRequestBuilder request = get("/api/changes").param("size", "2");
+			if (token != null) {
+				request.param("since", token);
+			}
+
+			JsonNode changes = read(request);
+			read += changes.get("repositories").size();
+			token = changes.get("nextToken").asText();
+			hasMore = changes.get("hasMore").asBoolean();
+		}
+
+		assertEquals(5, read);
+		JsonNode changes = read(get("/api/changes").param("since", token));
+		assertEquals(0, changes.get("repositories").size());
+		assertFalse(changes.get("hasMore").asBoolean());
+	}
+
+	@Test
+	void invalidTokenIsRejected() throws Exception {
+		mockMvc.perform(get("/api/changes").param("since", "not-a-token")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/changes").param("size", "0")).andExpect(status().isBadRequest());
+	}
+
+	private long createRepository(String url) throws Exception {
+		RepositoryDTO repository = new RepositoryDTO();
+		repository.setUrl(url);
+
+		return read(post("/api/repository")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(repository))).get("id").asLong();
+	}
+
+	private long createSecret(long repositoryId, String key) throws Exception {
+		SecretDTO secret = new SecretDTO();
+		secret.setSecretKey(key);
+		secret.setSecretValue("value");
+		secret.setRepositoryId(repositoryId);
+
+		return read(post("/api/secret")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(secret))).get("id").asLong();
+	}
+
+	private JsonNode read(MockHttpServletRequestBuilder request) throws Exception {
+		return objectMapper.readTree(mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.RepositoryStorageApplication;
+import com.bvelikov.repository_storage.service.ChangeBroadcaster;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>Measures the fan-out of the change stream to many idle subscribers, with Tomcat's pool of platform threads and
+ * with virtual threads (<i>spring.threads.virtual.enabled</i>). Every change is pushed to all subscribers, and the
+ * time from the commit of a change until the last subscriber received it is reported.</p>
+ *
+ * <p>The load test is not part of the regular build. Run it with
+ * <code>mvn test -Dtest=ChangeStreamLoadTests -Dbenchmark=true</code>.</p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ChangeStreamLoadTests {
+
+	private static final int SUBSCRIBERS = 2000;
+	private static final int SUBSCRIBE_BATCH = 100;
+	private static final int CHANGES = 20;
+
+	@Test
+	void platformThreads() throws Exception {
+		report("Platform threads", false);
+	}
+
+	@Test
+	void virtualThreads() throws Exception {
+		report("Virtual threads", true);
+	}
+
+	private static void report(String name, boolean virtualThreads) throws Exception {
+		try (ConfigurableApplicationContext context = start(virtualThreads)) {
+			HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			try {
+				int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+				ChangeBroadcaster changeBroadcaster = context.getBean(ChangeBroadcaster.class);
+
+				List<EventCounter> subscribers = new ArrayList<>();
+				for (int i = 0; i < SUBSCRIBERS; i += SUBSCRIBE_BATCH) {
+					CountDownLatch subscribed = new CountDownLatch(SUBSCRIBE_BATCH);
+					for (int j = 0; j < SUBSCRIBE_BATCH; j++) {
+						EventCounter subscriber = new EventCounter(subscribed);
+						httpClient.sendAsync(HttpRequest.newBuilder(uri(port, "/api/changes/stream")).build(),
+								HttpResponse.BodyHandlers.fromLineSubscriber(subscriber));
+						subscribers.add(subscriber);
+					}
+					assertTrue(subscribed.await(30, TimeUnit.SECONDS));
+				}
+				assertEquals(SUBSCRIBERS, changeBroadcaster.getSubscriberCount());
+
+				long[] fanOut = new long[CHANGES];
+				for (int i = 0; i < CHANGES; i++) {
+					int expected = i + 1;
+					HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(uri(port, "/api/repository"))
+									.header("Content-Type", "application/json")
+									.POST(HttpRequest.BodyPublishers.ofString(
+											"{\"url\": \"https://github.com/acme/repository-" + i + "\"}"))
+									.build(),
+							HttpResponse.BodyHandlers.ofString());
+					long committed = System.nanoTime();
+					assertEquals(200, response.statusCode());
+
+					for (EventCounter subscriber : subscribers) {
+						subscriber.await(expected);
+					}
+					fanOut[i] = System.nanoTime() - committed;
+				}
+
+				assertEquals(SUBSCRIBERS, changeBroadcaster.getSubscriberCount());
+				Arrays.sort(fanOut);
+				System.out.printf("%-20s %d subscribers, time until all received a change: p50 %7.1f ms, "
+								+ "max %7.1f ms, %d live threads%n", name, SUBSCRIBERS, fanOut[CHANGES / 2] / 1e6,
+						fanOut[CHANGES - 1] / 1e6, Thread.activeCount());
+			} finally {
+				httpClient.shutdownNow();
+			}
+		}
+	}
+
+	private static ConfigurableApplicationContext start(boolean virtualThreads) {
+		// Arguments, unlike default properties, override the application properties
+		return new SpringApplicationBuilder(RepositoryStorageApplication.class)
+				.profiles("test")
+				.run(
+						"--server.port=0",
+						"--spring.threads.virtual.enabled=" + virtualThreads,
+						"--spring.datasource.url=jdbc:h2:mem:stream-" + virtualThreads + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+	}
+
+	private static URI uri(int port, String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+
+	private static class EventCounter implements Flow.Subscriber<String> {
+		private final CountDownLatch subscribed;
+
+		private final AtomicInteger events = new AtomicInteger();
+
+		private boolean first = true;
+
+		EventCounter(CountDownLatch subscribed) {
+			this.subscribed = subscribed;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(String line) {
+			if (first) {
+				first = false;
+				subscribed.countDown();
+			}
+			if (line.startsWith("event:")) {
+				synchronized (this) {
+					events.incrementAndGet();
+					notifyAll();
+				}
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+		}
+
+		@Override
+		public void onComplete() {
+		}
+
+		synchronized void await(int count) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 30_000;
+			while (events.get() < count) {
+				long remaining = deadline - System.currentTimeMillis();
+				assertTrue(remaining > 0, "A subscriber did not receive a change");
+				wait(remaining);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.repository.TombstoneRepository;
+import com.bvelikov.repository_storage.service.ChangeBroadcaster;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Subscribes to the change stream over HTTP and verifies that committed writes are pushed, and writes that are rolled
+ * back are not.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ChangeStreamTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ChangeBroadcaster changeBroadcaster;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private TombstoneRepository tombstoneRepository;
+
+	private final HttpClient httpClient = HttpClient.newHttpClient();
+
+	@AfterEach
+	void tearDown() {
+		httpClient.shutdownNow();
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+		tombstoneRepository.deleteAll();
+	}
+
+	@Test
+	void committedChangesArePushed() throws Exception {
+		BlockingQueue<String> events = subscribe();
+
+		long id = post("/api/repository", "{\"url\": \"https://github.com/acme/pushed\"}").get("id").asLong();
+		JsonNode created = nextChange(events);
+		assertEquals(id, created.get("repositories").get(0).get("id").asLong());
+
+		post("/api/secret", "{\"secretKey\": \"token\", \"secretValue\": \"value\", \"repositoryId\": " + id + "}");
+		JsonNode secretAdded = nextChange(events);
+		assertEquals("token", secretAdded.get("repositories").get(0).get("secrets").get(0).get("secretKey").asText());
+		assertEquals(1, secretAdded.get("secrets").size());
+
+		// The duplicate key rolls the transaction back, so nothing is pushed for it
+		assertEquals(400, send(HttpRequest.newBuilder(uri("/api/secret"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(
+						"{\"secretKey\": \"token\", \"secretValue\": \"other\", \"repositoryId\": " + id + "}"))
+				.build()).statusCode());
+		assertEquals(204, send(HttpRequest.newBuilder(uri("/api/repository/" + id)).DELETE().build()).statusCode());
+
+		JsonNode deleted = nextChange(events);
+		assertEquals(2, deleted.get("deleted").size());
+		assertEquals("REPOSITORY", deleted.get("deleted").get(0).get("entityType").asText());
+		assertEquals(id, deleted.get("deleted").get(0).get("id").asLong());
+	}
+
+	private BlockingQueue<String> subscribe() throws Exception {
+		int subscribers = changeBroadcaster.getSubscriberCount();
+
+		BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+		httpClient.sendAsync(HttpRequest.newBuilder(uri("/api/changes/stream")).build(),
+				HttpResponse.BodyHandlers.fromLineSubscriber(new Flow.Subscriber<>() {
+					@Override
+					public void onSubscribe(Flow.Subscription subscription) {
+						subscription.request(Long.MAX_VALUE);
+					}
+
+					@Override
+					public void onNext(String line) {
+						lines.add(line);
+					}
+
+					@Override
+					public void onError(Throwable throwable) {
+					}
+
+					@Override
+					public void onComplete() {
+					}
+				}));
+
+		// The first line is the heartbeat comment sent on subscription
+		assertNotNull(lines.poll(5, TimeUnit.SECONDS));
+		assertEquals(subscribers + 1, changeBroadcaster.getSubscriberCount());
+		return lines;
+	}
+
+	private JsonNode nextChange(BlockingQueue<String> lines) throws Exception {
+		while (true) {
+			String line = lines.poll(5, TimeUnit.SECONDS);
+			assertNotNull(line, "No change was pushed");
+			if (line.startsWith("data:")) {
+				return objectMapper.readTree(line.substring("data:".length()));
+			}
+		}
+	}
+
+	private JsonNode post(String path, String body) throws Exception {
+		HttpResponse<String> response = send(HttpRequest.newBuilder(uri(path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build());
+		assertEquals(200, response.statusCode());
+		return objectMapper.readTree(response.body());
+	}
+
+	private HttpResponse<String> send(HttpRequest request) throws Exception {
+		return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+
+}
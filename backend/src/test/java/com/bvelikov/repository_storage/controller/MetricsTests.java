@@ -0,0 +1,45 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.security.encryption.EnvelopeEncryption;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class MetricsTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private EnvelopeEncryption envelopeEncryption;
+
+	@Test
+	void endpointRepositoryAndEncryptionMetricsAreScraped() throws Exception {
+		mockMvc.perform(get("/api/repository/list/page").param("size", "2"))
+				.andExpect(status().isOk());
+		envelopeEncryption.encrypt("token");
+
+		mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString(
+						"http_server_requests_seconds_bucket{error=\"none\",exception=\"none\",method=\"GET\"")))
+				.andExpect(content().string(containsString("uri=\"/api/repository/list/page\"")))
+				.andExpect(content().string(containsString(
+						"spring_data_repository_invocations_seconds_bucket{exception=\"None\",method=\"findIdsByIdGreaterThan\"")))
+				.andExpect(content().string(containsString("secret_encryptions_total{format=\"gcm\"")));
+	}
+
+}
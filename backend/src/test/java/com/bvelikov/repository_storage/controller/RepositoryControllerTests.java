@@ -0,0 +1,100 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RepositoryControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	private final List<Long> ids = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < 5; i++) {
+			Repository repository = new Repository();
+			repository.setUrl("https://github.com/owner/repository-" + i);
+			repository.setSecrets(new HashSet<>());
+			ids.add(repositoryRepository.save(repository).getId());
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		ids.clear();
+	}
+
+	@Test
+	void listPageFollowsCursor() throws Exception {
+		MvcResult firstPage = mockMvc.perform(get("/api/repository/list/page").param("size", "2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories", hasSize(2)))
+				.andExpect(jsonPath("$.repositories[0].id").value(ids.get(0)))
+				.andExpect(jsonPath("$.nextCursor").value(ids.get(1)))
+				.andReturn();
+
+		Number cursor = JsonPath.read(firstPage.getResponse().getContentAsString(), "$.nextCursor");
+		mockMvc.perform(get("/api/repository/list/page").param("size", "2").param("after", cursor.toString()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories[0].id").value(ids.get(2)))
+				.andExpect(jsonPath("$.nextCursor").value(ids.get(3)));
+
+		mockMvc.perform(get("/api/repository/list/page").param("size", "2").param("after", ids.get(3).toString()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories", hasSize(1)))
+				.andExpect(jsonPath("$.nextCursor").value(nullValue()));
+	}
+
+	@Test
+	void listPageRejectsNonPositiveSize() throws Exception {
+		mockMvc.perform(get("/api/repository/list/page").param("size", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void listStreamWritesAllRepositories() throws Exception {
+		MvcResult result = mockMvc.perform(get("/api/repository/list/stream"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(ids.size())))
+				.andExpect(jsonPath("$[4].url").value("https://github.com/owner/repository-4"));
+
+		List<Number> streamedIds = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+		assertEquals(ids, streamedIds.stream().map(Number::longValue).toList());
+	}
+
+}
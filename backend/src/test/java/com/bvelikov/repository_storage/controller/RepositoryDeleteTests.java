@@ -0,0 +1,115 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that deleting a repository issues a constant number of SQL statements, no matter how many secrets the
+ * repository has, and keeps secrets that are used by other repositories.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RepositoryDeleteTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void deleteIssuesConstantNumberOfStatements() throws Exception {
+		List<Secret> secrets = createSecrets(200);
+		Secret shared = secrets.get(0);
+		Repository deleted = createRepository("https://github.com/owner/deleted", secrets);
+		Repository other = createRepository("https://github.com/owner/other", List.of(shared));
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		mockMvc.perform(delete("/api/repository/{id}", deleted.getId())).andExpect(status().isNoContent());
+
+		// Find the secret ids, unlink secrets, delete repository, record the repository's tombstone, find orphaned
+		// secrets, record their tombstones, delete them
+		assertEquals(7, statistics.getPrepareStatementCount());
+
+		assertFalse(repositoryRepository.existsById(deleted.getId()));
+		assertEquals(1, secretRepository.count());
+		assertTrue(secretRepository.existsById(shared.getId()));
+		assertEquals(1, repositoryRepository.findWithSecretsById(other.getId()).orElseThrow().getSecrets().size());
+	}
+
+	@Test
+	void deleteWithoutSecretsSkipsSecretDelete() throws Exception {
+		Repository repository = createRepository("https://github.com/owner/empty", List.of());
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		mockMvc.perform(delete("/api/repository/{id}", repository.getId())).andExpect(status().isNoContent());
+
+		assertEquals(4, statistics.getPrepareStatementCount());
+		assertFalse(repositoryRepository.existsById(repository.getId()));
+	}
+
+	@Test
+	void deleteMissingRepositoryReturnsNotFound() throws Exception {
+		mockMvc.perform(delete("/api/repository/{id}", -1L)).andExpect(status().isNotFound());
+	}
+
+	private List<Secret> createSecrets(int count) {
+		List<Secret> secrets = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Secret secret = new Secret();
+			secret.setSecretKey("key-" + i);
+			secret.setSecretValue("value");
+			secrets.add(secret);
+		}
+
+		return secretRepository.saveAll(secrets);
+	}
+
+	private Repository createRepository(String url, List<Secret> secrets) {
+		Repository repository = new Repository();
+		repository.setUrl(url);
+		repository.setSecrets(new HashSet<>(secrets));
+
+		return repositoryRepository.save(repository);
+	}
+
+}
@@ -0,0 +1,150 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the encodings of the repository listing that are negotiated with the <i>Accept</i> and
+ * <i>Accept-Encoding</i> headers, over HTTP, so that the server's response compression is included.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class RepositoryListingFormatTests {
+
+	private static final int REPOSITORIES = 50;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	private final HttpClient httpClient = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < REPOSITORIES; i++) {
+			Set<Secret> secrets = new HashSet<>();
+			for (String key : new String[] {"user", "token"}) {
+				Secret secret = new Secret();
+				secret.setSecretKey(key);
+				secret.setSecretValue("encrypted-value");
+				secrets.add(secretRepository.save(secret));
+			}
+
+			Repository repository = new Repository();
+			repository.setUrl("https://github.com/owner/repository-" + i);
+			repository.setSecrets(secrets);
+			repositoryRepository.save(repository);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		httpClient.shutdownNow();
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void binaryEncodingsMatchJson() throws Exception {
+		JsonNode json = sorted(objectMapper.readTree(get("/api/repository/list", "application/json", null).body()));
+		assertEquals(REPOSITORIES, json.size());
+
+		HttpResponse<byte[]> cbor = get("/api/repository/list", "application/cbor", null);
+		assertEquals("application/cbor", cbor.headers().firstValue("Content-Type").orElseThrow());
+		assertEquals(json, sorted(new CBORMapper().readTree(cbor.body())));
+
+		HttpResponse<byte[]> smile = get("/api/repository/list", "application/x-jackson-smile", null);
+		assertEquals("application/x-jackson-smile", smile.headers().firstValue("Content-Type").orElseThrow());
+		assertEquals(json, sorted(new SmileMapper().readTree(smile.body())));
+
+		assertTrue(cbor.body().length < get("/api/repository/list", "application/json", null).body().length);
+	}
+
+	@Test
+	void listingIsCompressed() throws Exception {
+		byte[] json = get("/api/repository/list", "application/json", null).body();
+
+		HttpResponse<byte[]> compressed = get("/api/repository/list", "application/json", "gzip");
+		assertEquals("gzip", compressed.headers().firstValue("Content-Encoding").orElseThrow());
+		assertTrue(compressed.body().length < json.length / 4);
+		try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compressed.body()))) {
+			assertEquals(sorted(objectMapper.readTree(json)), sorted(objectMapper.readTree(inputStream.readAllBytes())));
+		}
+	}
+
+	@Test
+	void flatListingHasNoNestedSecrets() throws Exception {
+		JsonNode flat = objectMapper.readTree(get("/api/repository/list/flat", "application/json", null).body());
+
+		assertEquals(REPOSITORIES, flat.size());
+		JsonNode repository = flat.get(0);
+		assertTrue(repository.get("url").asText().startsWith("https://github.com/owner/repository-"));
+		assertEquals("GIT_HUB", repository.get("repositoryType").asText());
+		assertEquals(2, repository.get("secretIds").size());
+		assertEquals(objectMapper.readTree("[\"user\", \"token\"]"), repository.get("secretKeys"));
+		assertTrue(repository.get("secretIds").get(0).asLong() < repository.get("secretIds").get(1).asLong());
+	}
+
+	/**
+	 * Sorts the secrets of every repository by id, since they are listed in no particular order.
+	 */
+	private static JsonNode sorted(JsonNode repositories) {
+		for (JsonNode repository : repositories) {
+			List<JsonNode> secrets = new ArrayList<>();
+			repository.get("secrets").forEach(secrets::add);
+			secrets.sort(Comparator.comparingLong(secret -> secret.get("id").asLong()));
+			((ArrayNode) repository.get("secrets")).removeAll().addAll(secrets);
+		}
+		return repositories;
+	}
+
+	private HttpResponse<byte[]> get(String path, String accept, String acceptEncoding) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Accept", accept);
+		if (acceptEncoding != null) {
+			request.header("Accept-Encoding", acceptEncoding);
+		}
+
+		HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+		assertEquals(200, response.statusCode());
+		return response;
+	}
+
+}
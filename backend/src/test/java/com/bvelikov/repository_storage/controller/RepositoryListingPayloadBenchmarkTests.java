@@ -0,0 +1,97 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.dto.FlatRepositoryDTO;
+import com.bvelikov.repository_storage.dto.RepositoryDTO;
+import com.bvelikov.repository_storage.model.RepositoryType;
+import com.bvelikov.repository_storage.repository.RepositoryListRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>Reports the payload size and serialization time of the repository listing for every encoding: the nested
+ * listing (<i>/api/repository/list</i>) and the flat listing (<i>/api/repository/list/flat</i>), each as JSON, JSON
+ * compressed with gzip (as the server does with <i>server.compression</i>), CBOR and Smile.</p>
+ *
+ * <p>The benchmark is not part of the regular build. Run it with
+ * <code>mvn test -Dtest=RepositoryListingPayloadBenchmarkTests -Dbenchmark=true</code>.</p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RepositoryListingPayloadBenchmarkTests {
+
+	private static final String[] SECRET_KEYS = {"DEPLOY_TOKEN", "REGISTRY_PASSWORD", "SLACK_WEBHOOK"};
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 5;
+
+	private final ObjectMapper json = new ObjectMapper();
+	private final ObjectMapper cbor = new CBORMapper();
+	private final ObjectMapper smile = new SmileMapper();
+
+	@Test
+	void tenThousandRepositories() throws Exception {
+		report(10_000);
+	}
+
+	@Test
+	void hundredThousandRepositories() throws Exception {
+		report(100_000);
+	}
+
+	private void report(int repositoryCount) throws Exception {
+		List<RepositoryListRow> rows = rows(repositoryCount);
+		List<RepositoryDTO> nested = RepositoryDTO.toDTOs(rows);
+		List<FlatRepositoryDTO> flat = FlatRepositoryDTO.toDTOs(rows);
+
+		System.out.printf("%d repositories, %d secrets each%n", repositoryCount, SECRET_KEYS.length);
+		for (Object[] listing : new Object[][] {{"nested", nested}, {"flat", flat}}) {
+			measure(repositoryCount, listing[0] + " JSON", json, listing[1], false);
+			measure(repositoryCount, listing[0] + " JSON gzip", json, listing[1], true);
+			measure(repositoryCount, listing[0] + " CBOR", cbor, listing[1], false);
+			measure(repositoryCount, listing[0] + " Smile", smile, listing[1], false);
+		}
+	}
+
+	private void measure(int repositoryCount, String name, ObjectMapper mapper, Object listing, boolean gzip)
+			throws Exception {
+		long size = 0;
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			long start = System.nanoTime();
+			try (OutputStream outputStream = gzip ? new GZIPOutputStream(bytes) : bytes) {
+				mapper.writeValue(outputStream, listing);
+			}
+			long elapsed = System.nanoTime() - start;
+			if (run >= WARMUP_RUNS) {
+				best = Math.min(best, elapsed);
+			}
+			size = bytes.size();
+		}
+
+		System.out.printf("  %-18s %10.1f KB %8.1f bytes/repository %8.1f ms%n", name, size / 1024.0,
+				(double) size / repositoryCount, best / 1e6);
+	}
+
+	private static List<RepositoryListRow> rows(int repositoryCount) {
+		List<RepositoryListRow> rows = new ArrayList<>();
+		long secretId = 0;
+		for (long id = 1; id <= repositoryCount; id++) {
+			String owner = "owner-" + (id % 100);
+			String name = "repository-" + id;
+			for (String key : SECRET_KEYS) {
+				rows.add(new RepositoryListRow(id, "https://github.com/" + owner + "/" + name, RepositoryType.GIT_HUB,
+						owner, name, null, null, null, ++secretId, key));
+			}
+		}
+		return rows;
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.RepositoryStorageApplication;
+import com.bvelikov.repository_storage.dto.RepositoryDTO;
+import com.bvelikov.repository_storage.dto.SecretDTO;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Compares the repository and secret listings as they were, loading managed entities with their encrypted values
+ * and mapping them to DTOs, with the projection queries that read only the listed columns. The latency and the bytes
+ * allocated by the listing thread are reported for each. The second-level and query caches are disabled, so every
+ * listing reads the database.</p>
+ *
+ * <p>The benchmark is not part of the regular build. Run it with
+ * <code>mvn test -Dtest=RepositoryListingProjectionBenchmarkTests -Dbenchmark=true</code>.</p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RepositoryListingProjectionBenchmarkTests {
+
+	private static final int REPOSITORIES = 10_000;
+	private static final int SECRETS_PER_REPOSITORY = 3;
+	private static final int WARMUP_RUNS = 5;
+	private static final int MEASURED_RUNS = 10;
+
+	private static ConfigurableApplicationContext context;
+
+	@BeforeAll
+	static void setUp() {
+		context = new SpringApplicationBuilder(RepositoryStorageApplication.class)
+				.profiles("test")
+				.run(
+						"--spring.main.web-application-type=none",
+						"--spring.datasource.url=jdbc:h2:mem:projection;DB_CLOSE_DELAY=-1;MODE=MySQL",
+						"--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+						"--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+						"--spring.jpa.properties.hibernate.generate_statistics=false",
+						"--logging.level.root=WARN");
+
+		// Values of the size of AES-GCM ciphertexts of short secrets, with a wrapped data key
+		Random random = new Random(1);
+		Timestamp now = Timestamp.from(Instant.now());
+		List<Object[]> repositories = new ArrayList<>();
+		List<Object[]> secrets = new ArrayList<>();
+		List<Object[]> links = new ArrayList<>();
+		long secretId = 0;
+		for (long id = 1; id <= REPOSITORIES; id++) {
+			repositories.add(new Object[] {id, "https://github.com/owner/repository-" + id, "GIT_HUB", "owner",
+					"repository-" + id, now});
+			for (int i = 0; i < SECRETS_PER_REPOSITORY; i++) {
+				byte[] encryptedValue = new byte[64];
+				random.nextBytes(encryptedValue);
+				secrets.add(new Object[] {++secretId, "key-" + i, encryptedValue, "wrapped-data-key-" + "x".repeat(80),
+						1, now});
+				links.add(new Object[] {id, secretId});
+			}
+		}
+
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		jdbcTemplate.batchUpdate("insert into repositories (id, url, provider, owner, name, updated_at) "
+				+ "values (?, ?, ?, ?, ?, ?)", repositories);
+		jdbcTemplate.batchUpdate("insert into secrets "
+				+ "(id, secret_key, encrypted_value, data_key, key_version, updated_at) values (?, ?, ?, ?, ?, ?)", secrets);
+		jdbcTemplate.batchUpdate("insert into repository_secrets (repository_id, secret_id) values (?, ?)", links);
+	}
+
+	@AfterAll
+	static void tearDown() {
+		context.close();
+	}
+
+	@Test
+	void repositoryListing() {
+		EntityManager entityManager = context.getBean(EntityManager.class);
+		// Read-only, like the repository method of the listing before the projection
+		TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(TransactionTemplate.class)
+				.getTransactionManager());
+		transactionTemplate.setReadOnly(true);
+		RepositoryRepository repositoryRepository = context.getBean(RepositoryRepository.class);
+
+		report("Repositories, entities", () -> transactionTemplate.execute(status -> {
+			// The query of the listing before the projection
+			List<Repository> repositories = entityManager.createQuery(
+					"select r from Repository r left join fetch r.secrets order by r.id", Repository.class)
+					.getResultList();
+
+			List<RepositoryDTO> dtos = new ArrayList<>();
+			repositories.forEach(repository -> dtos.add(RepositoryDTO.toDTO(repository)));
+			return dtos;
+		}));
+		report("Repositories, projection", () -> RepositoryDTO.toDTOs(repositoryRepository.findAllListRows()));
+	}
+
+	@Test
+	void secretListing() {
+		SecretRepository secretRepository = context.getBean(SecretRepository.class);
+
+		report("Secrets, entities", () -> {
+			List<Secret> secrets = secretRepository.findAll();
+
+			List<SecretDTO> dtos = new ArrayList<>();
+			secrets.forEach(secret -> dtos.add(SecretDTO.toDTO(secret, 0L)));
+			return dtos;
+		});
+		report("Secrets, projection", () -> {
+			List<SecretDTO> dtos = new ArrayList<>();
+			secretRepository.findAllListRows().forEach(secret -> dtos.add(SecretDTO.toDTO(secret, 0L)));
+			return dtos;
+		});
+	}
+
+	private static void report(String name, Supplier<List<?>> listing) {
+		com.sun.management.ThreadMXBean threadMXBean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().threadId();
+
+		long[] latencies = new long[MEASURED_RUNS];
+		long[] allocations = new long[MEASURED_RUNS];
+		for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+			long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			int size = listing.get().size();
+			long elapsed = System.nanoTime() - start;
+			allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocated;
+
+			assertEquals(name.startsWith("Secrets") ? REPOSITORIES * SECRETS_PER_REPOSITORY : REPOSITORIES, size);
+			if (run >= WARMUP_RUNS) {
+				latencies[run - WARMUP_RUNS] = elapsed;
+				allocations[run - WARMUP_RUNS] = allocated;
+			}
+		}
+
+		Arrays.sort(latencies);
+		Arrays.sort(allocations);
+		System.out.printf("%-26s p50 %7.1f ms, max %7.1f ms, %7.1f MB allocated per listing%n", name,
+				latencies[MEASURED_RUNS / 2] / 1e6, latencies[MEASURED_RUNS - 1] / 1e6,
+				allocations[MEASURED_RUNS / 2] / (1024.0 * 1024.0));
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that listing repositories issues a constant number of SQL statements, no matter how many repositories
+ * and secrets are listed.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RepositoryListingStatementCountTests {
+
+	private static final int SMALL = 3;
+	private static final int LARGE = 30;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void listIssuesSingleStatement() throws Exception {
+		createRepositories(0, SMALL);
+		assertEquals(1, countStatements("/api/repository/list", SMALL));
+
+		createRepositories(SMALL, LARGE);
+		assertEquals(1, countStatements("/api/repository/list", LARGE));
+	}
+
+	@Test
+	void listPageIssuesTwoStatements() throws Exception {
+		createRepositories(0, LARGE);
+
+		assertEquals(2, countStatements("/api/repository/list/page?size=" + SMALL, SMALL));
+		assertEquals(2, countStatements("/api/repository/list/page?size=" + LARGE, LARGE));
+	}
+
+	@Test
+	void listStreamIssuesSingleStatement() throws Exception {
+		createRepositories(0, LARGE);
+
+		statistics.clear();
+		MvcResult result = mockMvc.perform(get("/api/repository/list/stream")).andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(LARGE)))
+				.andExpect(jsonPath("$[0].secrets", hasSize(2)));
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	private long countStatements(String url, int expectedRepositories) throws Exception {
+		statistics.clear();
+		mockMvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath(url.contains("/page") ? "$.repositories" : "$", hasSize(expectedRepositories)));
+
+		return statistics.getPrepareStatementCount();
+	}
+
+	private void createRepositories(int from, int to) {
+		for (int i = from; i < to; i++) {
+			Set<Secret> secrets = new HashSet<>();
+			for (String key : new String[] { "username", "token" }) {
+				Secret secret = new Secret();
+				secret.setSecretKey(key);
+				secret.setSecretValue("value");
+				secrets.add(secretRepository.save(secret));
+			}
+
+			Repository repository = new Repository();
+			repository.setUrl("https://github.com/owner/repository-" + i);
+			repository.setSecrets(secrets);
+			repositoryRepository.save(repository);
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.RepositoryType;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RepositorySearchTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		Secret secret = new Secret();
+		secret.setSecretKey("token");
+		secret.setSecretValue("value");
+		secret = secretRepository.save(secret);
+
+		createRepository("https://github.com/acme/backend", Set.of(secret));
+		createRepository("https://github.com/acme/frontend", Set.of());
+		createRepository("https://gitlab.com/acme/backend_old", Set.of());
+		createRepository("git@bitbucket.org:other/backend.git", Set.of());
+	}
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void providerIsStoredOnWrite() {
+		assertEquals(RepositoryType.GIT_HUB.name(), jdbcTemplate.queryForObject(
+				"select provider from repositories where url = ?", String.class, "https://github.com/acme/backend"));
+	}
+
+	@Test
+	void searchByUrlPrefix() throws Exception {
+		mockMvc.perform(get("/api/repository/search").param("url", "https://github.com/acme/"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories[*].url").value(containsInAnyOrder(
+						"https://github.com/acme/backend", "https://github.com/acme/frontend")));
+	}
+
+	@Test
+	void searchByUrlSubstring() throws Exception {
+		mockMvc.perform(get("/api/repository/search").param("url", "backend"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories", hasSize(0)));
+		mockMvc.perform(get("/api/repository/search").param("url", "backend").param("match", "CONTAINS"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories", hasSize(3)));
+	}
+
+	@Test
+	void searchEscapesWildcards() throws Exception {
+		mockMvc.perform(get("/api/repository/search").param("url", "d_o").param("match", "CONTAINS"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories[*].url").value(containsInAnyOrder(
+						"https://gitlab.com/acme/backend_old")));
+		mockMvc.perform(get("/api/repository/search").param("url", "%").param("match", "CONTAINS"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories", hasSize(0)));
+	}
+
+	@Test
+	void searchByExactUrl() throws Exception {
+		mockMvc.perform(get("/api/repository/search").param("url", "https://github.com/acme").param("match", "EXACT"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories", hasSize(0)));
+		mockMvc.perform(get("/api/repository/search").param("url", "https://github.com/acme/backend")
+						.param("match", "EXACT"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories", hasSize(1)));
+	}
+
+	@Test
+	void searchByTypeAndSecretKey() throws Exception {
+		mockMvc.perform(get("/api/repository/search").param("type", "GIT_HUB"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories", hasSize(2)));
+		mockMvc.perform(get("/api/repository/search").param("url", "https://github.com/").param("secretKey", "token"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories[*].url").value(containsInAnyOrder(
+						"https://github.com/acme/backend")));
+	}
+
+	@Test
+	void searchPagesWithCursor() throws Exception {
+		String firstPage = mockMvc.perform(get("/api/repository/search").param("url", "backend").param("match", "CONTAINS")
+						.param("size", "2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories", hasSize(2)))
+				.andReturn().getResponse().getContentAsString();
+		String cursor = firstPage.replaceAll(".*\"nextCursor\":(\\d+).*", "$1");
+
+		mockMvc.perform(get("/api/repository/search").param("url", "backend").param("match", "CONTAINS")
+						.param("size", "2").param("after", cursor))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.repositories", hasSize(1)))
+				.andExpect(jsonPath("$.nextCursor").value(nullValue()));
+	}
+
+	@Test
+	void searchWithInvalidFilterReturnsBadRequest() throws Exception {
+		mockMvc.perform(get("/api/repository/search").param("type", "SOURCE_FORGE"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/repository/search").param("size", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private void createRepository(String url, Set<Secret> secrets) {
+		Repository repository = new Repository();
+		repository.setUrl(url);
+		repository.setSecrets(new HashSet<>(secrets));
+		repositoryRepository.save(repository);
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SecretControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	private final List<Long> ids = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < 3; i++) {
+			Secret secret = new Secret();
+			secret.setSecretKey("key-" + i);
+			secret.setSecretValue("value");
+			ids.add(secretRepository.save(secret).getId());
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		secretRepository.deleteAll();
+		ids.clear();
+	}
+
+	@Test
+	void listPageFollowsCursorWithoutValues() throws Exception {
+		mockMvc.perform(get("/api/secret/list/page").param("size", "2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.secrets", hasSize(2)))
+				.andExpect(jsonPath("$.secrets[0].id").value(ids.get(0)))
+				.andExpect(jsonPath("$.secrets[0].secretKey").value("key-0"))
+				.andExpect(jsonPath("$.secrets[0].secretValue").value(nullValue()))
+				.andExpect(jsonPath("$.nextCursor").value(ids.get(1)));
+
+		mockMvc.perform(get("/api/secret/list/page").param("size", "2").param("after", ids.get(1).toString()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.secrets", hasSize(1)))
+				.andExpect(jsonPath("$.secrets[0].id").value(ids.get(2)))
+				.andExpect(jsonPath("$.nextCursor").value(nullValue()));
+	}
+
+	@Test
+	void listPageRejectsNonPositiveSize() throws Exception {
+		mockMvc.perform(get("/api/secret/list/page").param("size", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
+}
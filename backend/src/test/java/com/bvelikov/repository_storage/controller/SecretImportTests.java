@@ -0,0 +1,142 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.security.encryption.EncryptionUtil;
+import com.bvelikov.repository_storage.security.encryption.EnvelopeEncryption;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SecretImportTests {
+
+	private static final int SECRETS_PER_REPOSITORY = 100;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private EnvelopeEncryption envelopeEncryption;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void importSavesSecretsInBatchesAndReportsEveryItem() throws Exception {
+		Repository first = createRepository("https://github.com/owner/first", "existing");
+		Repository second = createRepository("https://github.com/owner/second", null);
+
+		ArrayNode request = objectMapper.createArrayNode();
+		for (int i = 0; i < SECRETS_PER_REPOSITORY; i++) {
+			request.add(secret(first.getId(), "key-" + i, "value-" + i));
+			request.add(secret(second.getId(), "key-" + i, "value-" + i));
+		}
+		request.add(secret(first.getId(), "existing", "value"));
+		request.add(secret(second.getId(), "key-0", "value"));
+		request.add(secret(-1L, "key", "value"));
+		request.add(secret(first.getId(), "", "value"));
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		String response = mockMvc.perform(post("/api/secret/import")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(request.toString()))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		// Without batching every secret would take at least two statements
+		long statements = statistics.getPrepareStatementCount();
+		assertTrue(statements < 30, "Statements: " + statements);
+
+		JsonNode results = objectMapper.readTree(response);
+		int saved = 2 * SECRETS_PER_REPOSITORY;
+		assertEquals(saved + 4, results.size());
+		for (int i = 0; i < saved; i++) {
+			assertEquals(i, results.get(i).get("index").asInt());
+			assertEquals(200, results.get(i).get("status").asInt());
+			assertNotNull(secretRepository.findById(results.get(i).get("id").asLong()).orElse(null));
+		}
+		assertEquals(400, results.get(saved).get("status").asInt());
+		assertEquals(400, results.get(saved + 1).get("status").asInt());
+		assertEquals(404, results.get(saved + 2).get("status").asInt());
+		assertEquals(400, results.get(saved + 3).get("status").asInt());
+
+		Repository stored = repositoryRepository.findWithSecretsById(second.getId()).orElseThrow();
+		assertEquals(SECRETS_PER_REPOSITORY, stored.getSecrets().size());
+		Secret secret = stored.getSecrets().stream()
+				.filter(candidate -> candidate.getSecretKey().equals("key-7"))
+				.findFirst().orElseThrow();
+		assertEquals("value-7", envelopeEncryption.decrypt(secret));
+	}
+
+	@Test
+	void emptyImportIsRejected() throws Exception {
+		mockMvc.perform(post("/api/secret/import").contentType(MediaType.APPLICATION_JSON).content("[]"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private JsonNode secret(Long repositoryId, String key, String value) {
+		return objectMapper.createObjectNode()
+				.put("repositoryId", repositoryId)
+				.put("secretKey", key)
+				.put("secretValue", value);
+	}
+
+	private Repository createRepository(String url, String secretKey) throws Exception {
+		Set<Secret> secrets = new HashSet<>();
+		if (secretKey != null) {
+			Secret secret = new Secret();
+			secret.setSecretKey(secretKey);
+			secret.setSecretValue(EncryptionUtil.encrypt("value"));
+			secrets.add(secretRepository.save(secret));
+		}
+
+		Repository repository = new Repository();
+		repository.setUrl(url);
+		repository.setSecrets(secrets);
+
+		return repositoryRepository.save(repository);
+	}
+
+}
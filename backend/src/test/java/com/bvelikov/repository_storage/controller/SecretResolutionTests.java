@@ -0,0 +1,146 @@
+package com.bvelikov.repository_storage.controller;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.security.encryption.EncryptionUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SecretResolutionTests {
+
+	private static final String TOKEN = "Bearer test-token";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void resolutionRequiresToken() throws Exception {
+		Repository repository = createRepository("https://github.com/owner/first", Set.of(createSecret("key", "value")));
+
+		mockMvc.perform(post("/api/repository/" + repository.getId() + "/secrets/resolve"))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(post("/api/repository/" + repository.getId() + "/secrets/resolve")
+						.header(HttpHeaders.AUTHORIZATION, "Bearer wrong-token"))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(post("/api/repository/secrets/resolve")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[" + repository.getId() + "]"))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void secretsOfRepositoryAreResolved() throws Exception {
+		Repository repository = createRepository("https://github.com/owner/first",
+				Set.of(createSecret("user", "octocat"), createSecret("token", "ghp_value")));
+
+		String response = mockMvc.perform(post("/api/repository/" + repository.getId() + "/secrets/resolve")
+						.header(HttpHeaders.AUTHORIZATION, TOKEN))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		JsonNode values = objectMapper.readTree(response);
+		assertEquals(2, values.size());
+		assertEquals("octocat", values.get("user").asText());
+		assertEquals("ghp_value", values.get("token").asText());
+
+		mockMvc.perform(post("/api/repository/-1/secrets/resolve").header(HttpHeaders.AUTHORIZATION, TOKEN))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void secretsOfManyRepositoriesAreResolvedWithOneQuery() throws Exception {
+		Secret shared = createSecret("shared", "shared-value");
+		Repository first = createRepository("https://github.com/owner/first",
+				Set.of(shared, createSecret("own", "first-value")));
+		Repository second = createRepository("https://github.com/owner/second", Set.of(shared));
+		Repository empty = createRepository("https://github.com/owner/empty", new HashSet<>());
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		String response = mockMvc.perform(post("/api/repository/secrets/resolve")
+						.header(HttpHeaders.AUTHORIZATION, TOKEN)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[" + first.getId() + ", " + second.getId() + ", " + empty.getId() + ", -1]"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+
+		JsonNode resolved = objectMapper.readTree(response);
+		JsonNode repositories = resolved.get("repositories");
+		assertEquals(3, repositories.size());
+		assertEquals("shared-value", repositories.get(first.getId().toString()).get("shared").asText());
+		assertEquals("first-value", repositories.get(first.getId().toString()).get("own").asText());
+		assertEquals(1, repositories.get(second.getId().toString()).size());
+		assertEquals("shared-value", repositories.get(second.getId().toString()).get("shared").asText());
+		assertEquals(0, repositories.get(empty.getId().toString()).size());
+		assertEquals(1, resolved.get("notFound").size());
+		assertEquals(-1, resolved.get("notFound").get(0).asLong());
+
+		mockMvc.perform(post("/api/repository/secrets/resolve")
+						.header(HttpHeaders.AUTHORIZATION, TOKEN)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[]"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private Secret createSecret(String key, String value) throws Exception {
+		Secret secret = new Secret();
+		secret.setSecretKey(key);
+		secret.setSecretValue(EncryptionUtil.encrypt(value));
+
+		return secretRepository.save(secret);
+	}
+
+	private Repository createRepository(String url, Set<Secret> secrets) {
+		Repository repository = new Repository();
+		repository.setUrl(url);
+		repository.setSecrets(new HashSet<>(secrets));
+
+		return repositoryRepository.save(repository);
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.RepositoryCoordinates;
+import com.bvelikov.repository_storage.model.RepositoryType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+		"repository-storage.backfill.chunk-size=2",
+		"repository-storage.backfill.pause=0ms"
+})
+class RepositoryCoordinatesBackfillTests {
+
+	@Autowired
+	private RepositoryCoordinatesBackfill repositoryCoordinatesBackfill;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+	}
+
+	@Test
+	void urlsAreParsed() {
+		assertEquals(new RepositoryCoordinates(RepositoryType.GIT_HUB, "acme", "backend"),
+				RepositoryCoordinates.parse("https://github.com/Acme/Backend/"));
+		assertEquals(new RepositoryCoordinates(RepositoryType.GIT_LAB, "group/subgroup", "project"),
+				RepositoryCoordinates.parse("git@gitlab.com:group/subgroup/project.git"));
+		assertEquals(new RepositoryCoordinates(RepositoryType.BIT_BUCKET, null, null),
+				RepositoryCoordinates.parse("https://bitbucket.org/workspace"));
+		assertEquals(new RepositoryCoordinates(null, null, null),
+				RepositoryCoordinates.parse("https://example.com/owner/name"));
+	}
+
+	@Test
+	void coordinatesAreStoredOnWrite() {
+		Repository repository = new Repository();
+		repository.setUrl("https://github.com/acme/backend");
+		repository = repositoryRepository.save(repository);
+
+		assertEquals(Map.of("PROVIDER", "GIT_HUB", "OWNER", "acme", "NAME", "backend"),
+				jdbcTemplate.queryForMap("select provider, owner, name from repositories where id = ?",
+						repository.getId()));
+	}
+
+	@Test
+	void rowWithoutOwnerIsBackfilledOnce() {
+		jdbcTemplate.update("insert into repositories (url) values (?)", "https://github.com/");
+
+		assertEquals(1, repositoryCoordinatesBackfill.backfill());
+		Timestamp updatedAt = jdbcTemplate.queryForObject("select updated_at from repositories where url = ?",
+				Timestamp.class, "https://github.com/");
+
+		assertEquals(0, repositoryCoordinatesBackfill.backfill());
+		assertEquals(updatedAt, jdbcTemplate.queryForObject("select updated_at from repositories where url = ?",
+				Timestamp.class, "https://github.com/"));
+	}
+
+	@Test
+	void existingRowsAreBackfilledInChunks() {
+		// Repositories saved before the columns existed
+		String[] urls = {
+				"https://github.com/acme/one",
+				"https://gitlab.com/acme/two",
+				"git@bitbucket.org:acme/three.git",
+				"https://github.com/acme/four",
+				"https://example.com/acme/five"
+		};
+		for (String url : urls) {
+			jdbcTemplate.update("insert into repositories (url) values (?)", url);
+		}
+
+		assertEquals(4, repositoryCoordinatesBackfill.backfill());
+
+		for (String url : urls) {
+			Map<String, Object> row = jdbcTemplate.queryForMap(
+					"select provider, owner, name from repositories where url = ?", url);
+			RepositoryCoordinates expected = RepositoryCoordinates.parse(url);
+			assertEquals(expected.provider() == null ? null : expected.provider().name(), row.get("PROVIDER"));
+			assertEquals(expected.owner(), row.get("OWNER"));
+			assertEquals(expected.name(), row.get("NAME"));
+		}
+		assertNull(jdbcTemplate.queryForObject("select provider from repositories where url = ?", String.class,
+				"https://example.com/acme/five"));
+
+		// Nothing is left to do on the next run
+		assertEquals(0, repositoryCoordinatesBackfill.backfill());
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RepositorySecretKeyInitializerTests {
+
+	@Autowired
+	private RepositorySecretKeyInitializer repositorySecretKeyInitializer;
+
+	@Autowired
+	private RepositorySecretKeys repositorySecretKeys;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void keysOfSecretsAddedWithoutTakingThemAreTakenWhileOtherKeysAreTaken() {
+		Repository repository = new Repository();
+		repository.setUrl("https://github.com/acme/rolling");
+		repository.setSecrets(new HashSet<>());
+		repository = repositoryRepository.save(repository);
+		Secret tracked = secretRepository.save(secret("tracked"));
+		Secret untracked = secretRepository.save(secret("untracked"));
+
+		assertTrue(repositorySecretKeys.take(repository.getId(), tracked.getSecretKey()));
+		jdbcTemplate.update("insert into repository_secrets (repository_id, secret_id) values (?, ?)",
+				repository.getId(), tracked.getId());
+		// Added by an instance that does not take keys, e.g. during a rolling deploy
+		jdbcTemplate.update("insert into repository_secrets (repository_id, secret_id) values (?, ?)",
+				repository.getId(), untracked.getId());
+
+		repositorySecretKeyInitializer.initialize();
+		repositorySecretKeyInitializer.initialize();
+
+		assertEquals(List.of("tracked", "untracked"), jdbcTemplate.queryForList(
+				"select secret_key from repository_secret_keys where repository_id = ? order by secret_key",
+				String.class, repository.getId()));
+	}
+
+	private static Secret secret(String key) {
+		Secret secret = new Secret();
+		secret.setSecretKey(key);
+		secret.setSecretValue("value");
+		return secret;
+	}
+
+}
@@ -0,0 +1,132 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that repeated reads are served from the second-level and query caches, and that writes invalidate them.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SecondLevelCacheTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Statistics statistics;
+
+	private Repository repository;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		Secret secret = new Secret();
+		secret.setSecretKey("token");
+		secret.setSecretValue("value");
+
+		Set<Secret> secrets = new HashSet<>();
+		secrets.add(secretRepository.save(secret));
+
+		repository = new Repository();
+		repository.setUrl("https://github.com/owner/cached");
+		repository.setSecrets(secrets);
+		repository = repositoryRepository.save(repository);
+	}
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void repeatedListIsServedFromQueryCache() throws Exception {
+		mockMvc.perform(get("/api/repository/list")).andExpect(status().isOk());
+
+		statistics.clear();
+		mockMvc.perform(get("/api/repository/list"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1)))
+				.andExpect(jsonPath("$[0].secrets", hasSize(1)));
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertEquals(1, statistics.getQueryCacheHitCount());
+	}
+
+	@Test
+	void findByIdIsServedFromEntityCache() {
+		repositoryRepository.findById(repository.getId()).orElseThrow();
+
+		statistics.clear();
+		repositoryRepository.findById(repository.getId()).orElseThrow();
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertEquals(1, statistics.getSecondLevelCacheHitCount());
+	}
+
+	@Test
+	void updateInvalidatesCachedList() throws Exception {
+		mockMvc.perform(get("/api/repository/list")).andExpect(status().isOk());
+
+		mockMvc.perform(put("/api/repository/{id}", repository.getId())
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"url\": \"https://gitlab.com/owner/renamed\"}"))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get("/api/repository/list"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].url", is("https://gitlab.com/owner/renamed")));
+	}
+
+	@Test
+	void cacheRequestsAreExposedAsMetrics() throws Exception {
+		mockMvc.perform(get("/api/repository/list")).andExpect(status().isOk());
+		mockMvc.perform(get("/api/repository/list")).andExpect(status().isOk());
+		repositoryRepository.findById(repository.getId()).orElseThrow();
+
+		assertTrue(meterRegistry.get("hibernate.cache.query.requests").tag("result", "hit")
+				.functionCounter().count() > 0);
+		assertTrue(meterRegistry.get("hibernate.second.level.cache.requests").tag("result", "hit")
+				.tag("region", Repository.class.getName()).functionCounter().count() > 0);
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.bvelikov.repository_storage.repository;
+
+import com.bvelikov.repository_storage.model.Secret;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SecretIdGeneratorInitializerTests {
+
+	private static final long EXISTING_ID = 5_000;
+
+	@Autowired
+	private SecretIdGeneratorInitializer secretIdGeneratorInitializer;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("delete from secrets where id = ?", EXISTING_ID);
+	}
+
+	@Test
+	void generatorIsMovedPastExistingIds() {
+		// A secret that got its id from the former auto-increment column
+		jdbcTemplate.update("insert into secrets (id, secret_key, secret_value) values (?, 'key', 'value')", EXISTING_ID);
+
+		secretIdGeneratorInitializer.initialize();
+
+		Long nextValue = jdbcTemplate.queryForObject(
+				"select next_val from " + Secret.ID_GENERATOR_TABLE + " where name = 'secrets'", Long.class);
+		assertTrue(nextValue > EXISTING_ID + Secret.ID_ALLOCATION_SIZE, "Next value: " + nextValue);
+	}
+
+}
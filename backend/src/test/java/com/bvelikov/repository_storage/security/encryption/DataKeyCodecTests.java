@@ -0,0 +1,50 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataKeyCodecTests {
+
+	private final SecretKey masterKey = new SecretKeySpec(new byte[32], "AES");
+
+	@Test
+	void dataKeyIsWrappedWithFormatVersionAndUnwrapped() throws Exception {
+		byte[] dataKey = new byte[32];
+		EncryptionUtil.nextBytes(dataKey);
+
+		byte[] wrapped = DataKeyCodec.wrap(dataKey, masterKey);
+
+		assertEquals(DataKeyCodec.FORMAT_AES_KW, wrapped[0]);
+		assertEquals(EnvelopeEncryption.WRAPPED_DATA_KEY_LENGTH, Base64.getEncoder().encodeToString(wrapped).length());
+		assertTrue(DataKeyCodec.isWrapped(wrapped));
+		assertArrayEquals(dataKey, DataKeyCodec.unwrap(wrapped, masterKey));
+	}
+
+	@Test
+	void modifiedDataKeyIsRejected() throws Exception {
+		byte[] wrapped = DataKeyCodec.wrap(new byte[32], masterKey);
+		wrapped[wrapped.length - 1] ^= 1;
+
+		assertThrows(GeneralSecurityException.class, () -> DataKeyCodec.unwrap(wrapped, masterKey));
+	}
+
+	@Test
+	void dataKeyWrappedWithCbcIsNotMistakenForTheFormat() throws Exception {
+		byte[] wrapped = Base64.getDecoder().decode(EncryptionUtil.encrypt(new byte[32], masterKey));
+		wrapped[0] = DataKeyCodec.FORMAT_AES_KW;
+
+		assertFalse(DataKeyCodec.isWrapped(wrapped));
+		assertThrows(GeneralSecurityException.class, () -> DataKeyCodec.unwrap(wrapped, masterKey));
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+		"repository-storage.encryption.master-key-version=2",
+		"repository-storage.encryption.rewrap.batch-size=2",
+		"repository-storage.encryption.rewrap.pause=0ms"
+})
+class DataKeyRewrapJobTests {
+
+	@Autowired
+	private DataKeyRewrapJob dataKeyRewrapJob;
+
+	@Autowired
+	private EnvelopeEncryption envelopeEncryption;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@AfterEach
+	void tearDown() {
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void dataKeysAreRewrappedWithoutChangingValues() throws Exception {
+		List<Secret> secrets = new ArrayList<>();
+
+		// Encrypted before secrets had data keys
+		Secret legacy = new Secret();
+		legacy.setSecretKey("legacy");
+		legacy.setSecretValue(EncryptionUtil.encrypt("legacy-token"));
+		secrets.add(legacy);
+
+		// Encrypted with a data key wrapped by the previous master key version
+		EncryptionProperties previousVersion = new EncryptionProperties();
+		previousVersion.setMasterKeyVersion(1);
+		for (int i = 0; i < 3; i++) {
+			Secret secret = new Secret();
+			secret.setSecretKey("key-" + i);
+			new EnvelopeEncryption(previousVersion).encrypt("token-" + i).applyTo(secret);
+			secrets.add(secret);
+		}
+
+		// Already on the current version
+		Secret current = new Secret();
+		current.setSecretKey("current");
+		envelopeEncryption.encrypt("current-token").applyTo(current);
+		secrets.add(current);
+
+		secrets = secretRepository.saveAll(secrets);
+
+		assertEquals(3, dataKeyRewrapJob.rewrap());
+
+		for (Secret before : secrets) {
+			Secret after = secretRepository.findById(before.getId()).orElseThrow();
+			assertEquals(envelopeEncryption.decrypt(before), envelopeEncryption.decrypt(after));
+			assertEquals(before.getSecretValue(), after.getSecretValue());
+			assertArrayEquals(before.getEncryptedValue(), after.getEncryptedValue());
+			if (before == legacy) {
+				// Left to the legacy migration job
+				assertNull(after.getDataKey());
+				assertNull(after.getKeyVersion());
+				continue;
+			}
+			assertEquals(2, after.getKeyVersion());
+			assertEquals(EnvelopeEncryption.WRAPPED_DATA_KEY_LENGTH, after.getDataKey().length());
+			if (before != current) {
+				assertNotEquals(before.getDataKey(), after.getDataKey());
+			}
+		}
+
+		// Nothing is left to do on the next run
+		assertEquals(0, dataKeyRewrapJob.rewrap());
+	}
+
+}
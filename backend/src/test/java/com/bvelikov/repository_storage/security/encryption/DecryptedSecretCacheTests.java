@@ -0,0 +1,111 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import com.bvelikov.repository_storage.model.Secret;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecryptedSecretCacheTests {
+
+	@Test
+	void reusedCiphersEncryptAndDecryptOnManyThreads() throws Exception {
+		try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < 200; j++) {
+						String value = "token-" + j;
+						String encrypted = EncryptionUtil.encrypt(value);
+						assertNotEquals(encrypted, EncryptionUtil.encrypt(value));
+						assertEquals(value, EncryptionUtil.decrypt(encrypted));
+					}
+					return null;
+				}));
+			}
+
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+	}
+
+	@Test
+	void disabledCacheDoesNotKeepDecryptedValues() throws Exception {
+		DecryptedSecretCache cache = cache(properties(false, Duration.ofMinutes(1)));
+		Secret secret = secret("token");
+
+		assertEquals("token", cache.decrypt(secret));
+		assertNull(cache.getCached(secret));
+	}
+
+	@Test
+	void decryptedValueIsReusedAndZeroedOnEviction() throws Exception {
+		DecryptedSecretCache cache = cache(properties(true, Duration.ofMinutes(1)));
+		Secret secret = secret("token");
+
+		assertEquals("token", cache.decrypt(secret));
+		DecryptedSecretCache.Plaintext cached = cache.getCached(secret);
+		assertNotNull(cached);
+		assertEquals("token", cache.decrypt(secret));
+		assertSame(cached, cache.getCached(secret));
+
+		cache.clear();
+		assertTrue(cached.isDestroyed());
+		assertNull(cached.read());
+		assertEquals("token", cache.decrypt(secret));
+	}
+
+	@Test
+	void expiredValueIsZeroed() throws Exception {
+		DecryptedSecretCache cache = cache(properties(true, Duration.ofMillis(100)));
+		Secret secret = secret("token");
+
+		cache.decrypt(secret);
+		DecryptedSecretCache.Plaintext cached = cache.getCached(secret);
+
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!cached.isDestroyed() && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+		assertTrue(cached.isDestroyed());
+	}
+
+	@Test
+	void legacyValueIsDecrypted() throws Exception {
+		DecryptedSecretCache cache = cache(properties(false, Duration.ofMinutes(1)));
+		Secret secret = new Secret();
+		secret.setSecretValue(EncryptionUtil.encrypt("token"));
+
+		assertEquals("token", cache.decrypt(secret));
+	}
+
+	private static DecryptedSecretCache cache(EncryptionProperties properties) {
+		return new DecryptedSecretCache(properties, new EnvelopeEncryption(properties));
+	}
+
+	private static Secret secret(String value) throws Exception {
+		Secret secret = new Secret();
+		new EnvelopeEncryption(new EncryptionProperties()).encrypt(value).applyTo(secret);
+		return secret;
+	}
+
+	private static EncryptionProperties properties(boolean enabled, Duration ttl) {
+		EncryptionProperties properties = new EncryptionProperties();
+		properties.getDecryptedCache().setEnabled(enabled);
+		properties.getDecryptedCache().setTtl(ttl);
+		return properties;
+	}
+
+}
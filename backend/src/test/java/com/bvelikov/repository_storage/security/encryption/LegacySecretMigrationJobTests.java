@@ -0,0 +1,77 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+		"repository-storage.encryption.migration.batch-size=2",
+		"repository-storage.encryption.migration.pause=0ms"
+})
+class LegacySecretMigrationJobTests {
+
+	@Autowired
+	private LegacySecretMigrationJob legacySecretMigrationJob;
+
+	@Autowired
+	private EnvelopeEncryption envelopeEncryption;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@AfterEach
+	void tearDown() {
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void legacyValuesAreReencryptedInBatches() throws Exception {
+		List<Secret> legacySecrets = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			Secret secret = new Secret();
+			secret.setSecretKey("legacy-" + i);
+			secret.setSecretValue(EncryptionUtil.encrypt("legacy-token-" + i));
+			legacySecrets.add(secret);
+		}
+		legacySecrets = secretRepository.saveAll(legacySecrets);
+
+		Secret current = new Secret();
+		current.setSecretKey("current");
+		envelopeEncryption.encrypt("current-token").applyTo(current);
+		current = secretRepository.save(current);
+
+		assertEquals(3, legacySecretMigrationJob.migrate());
+
+		for (int i = 0; i < legacySecrets.size(); i++) {
+			Secret migrated = secretRepository.findById(legacySecrets.get(i).getId()).orElseThrow();
+			assertNull(migrated.getSecretValue());
+			assertNotNull(migrated.getEncryptedValue());
+			assertEquals(EnvelopeEncryption.WRAPPED_DATA_KEY_LENGTH, migrated.getDataKey().length());
+			assertEquals("legacy-token-" + i, envelopeEncryption.decrypt(migrated));
+		}
+
+		// Values in the current format are not re-encrypted
+		Secret unchanged = secretRepository.findById(current.getId()).orElseThrow();
+		assertArrayEquals(current.getEncryptedValue(), unchanged.getEncryptedValue());
+		assertEquals(current.getDataKey(), unchanged.getDataKey());
+
+		// Nothing is left to do on the next run
+		assertEquals(0, legacySecretMigrationJob.migrate());
+	}
+
+}
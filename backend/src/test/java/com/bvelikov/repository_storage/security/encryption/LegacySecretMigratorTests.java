@@ -0,0 +1,94 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "repository-storage.encryption.lazy-migration.enabled=true")
+class LegacySecretMigratorTests {
+
+	@Autowired
+	private LegacySecretMigrator legacySecretMigrator;
+
+	@Autowired
+	private EnvelopeEncryption envelopeEncryption;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@AfterEach
+	void tearDown() {
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void legacyValuesAreMigratedOnce() throws Exception {
+		// Encrypted before secrets had data keys
+		Secret withoutDataKey = new Secret();
+		withoutDataKey.setSecretKey("legacy");
+		withoutDataKey.setSecretValue(EncryptionUtil.encrypt("legacy-token"));
+		withoutDataKey = secretRepository.save(withoutDataKey);
+
+		// Encrypted with a data key, before values were stored as bytes
+		Secret withDataKey = new Secret();
+		withDataKey.setSecretKey("cbc");
+		withDataKey.setSecretValue(EncryptionUtil.encrypt("cbc-token".getBytes(),
+				KeyManagement.getMasterKey(KeyManagement.LEGACY_KEY_VERSION)));
+		withDataKey.setDataKey(EncryptionUtil.encrypt(KeyManagement.getKey().getEncoded(),
+				KeyManagement.getMasterKey(KeyManagement.LEGACY_KEY_VERSION)));
+		withDataKey.setKeyVersion(KeyManagement.LEGACY_KEY_VERSION);
+		withDataKey = secretRepository.save(withDataKey);
+
+		assertTrue(legacySecretMigrator.migrate(withoutDataKey.getId()));
+		assertFalse(legacySecretMigrator.migrate(withoutDataKey.getId()));
+
+		Secret migrated = secretRepository.findById(withoutDataKey.getId()).orElseThrow();
+		assertNull(migrated.getSecretValue());
+		assertNotNull(migrated.getEncryptedValue());
+		assertNotNull(migrated.getDataKey());
+		assertEquals("legacy-token", envelopeEncryption.decrypt(migrated));
+
+		// Migrated in the background when it is used
+		legacySecretMigrator.migrateLater(withDataKey);
+
+		// Polled without the second-level cache, which a read racing the migration may fill with the legacy value
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (isLegacyFormat(withDataKey.getId()) && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+		assertFalse(isLegacyFormat(withDataKey.getId()));
+
+		entityManagerFactory.getCache().evict(Secret.class, withDataKey.getId());
+		Secret current = secretRepository.findById(withDataKey.getId()).orElseThrow();
+		assertFalse(EnvelopeEncryption.isLegacyFormat(current));
+		assertEquals("cbc-token", envelopeEncryption.decrypt(current));
+	}
+
+	private boolean isLegacyFormat(Long id) {
+		return jdbcTemplate.queryForObject("select encrypted_value is null from secrets where id = ?", Boolean.class, id);
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.bvelikov.repository_storage.security.encryption;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SecretCodecTests {
+
+	private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+	@Test
+	void valueIsEncryptedWithFormatVersionAndDecrypted() throws Exception {
+		byte[] value = "ghp_token".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(value);
+
+		byte[] encrypted = SecretCodec.encrypt(buffer, key);
+
+		assertFalse(buffer.hasRemaining());
+		assertEquals(SecretCodec.FORMAT_AES_GCM, encrypted[0]);
+		assertEquals(1 + 12 + value.length + 16, encrypted.length);
+		assertArrayEquals(value, SecretCodec.decrypt(encrypted, key));
+		assertFalse(Arrays.equals(encrypted, SecretCodec.encrypt(ByteBuffer.wrap(value), key)));
+	}
+
+	@Test
+	void modifiedValueIsRejected() throws Exception {
+		byte[] encrypted = SecretCodec.encrypt(ByteBuffer.wrap("token".getBytes(StandardCharsets.UTF_8)), key);
+		encrypted[encrypted.length - 1] ^= 1;
+
+		assertThrows(GeneralSecurityException.class, () -> SecretCodec.decrypt(encrypted, key));
+	}
+
+	@Test
+	void unknownFormatIsRejected() throws Exception {
+		byte[] encrypted = SecretCodec.encrypt(ByteBuffer.wrap("token".getBytes(StandardCharsets.UTF_8)), key);
+		encrypted[0] = 1;
+
+		assertThrows(GeneralSecurityException.class, () -> SecretCodec.decrypt(encrypted, key));
+		assertThrows(GeneralSecurityException.class, () -> SecretCodec.decrypt(new byte[4], key));
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.bvelikov.repository_storage.service;
+
+import com.bvelikov.repository_storage.model.Tombstone;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeBroadcasterTests {
+
+	private static final int BUFFER_SIZE = 4;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ChangeBroadcaster changeBroadcaster = new ChangeBroadcaster(new ObjectMapper(), meterRegistry,
+			BUFFER_SIZE, 2, Duration.ofHours(1), Duration.ofHours(1));
+
+	private final ChangeBroadcaster timingOutBroadcaster = new ChangeBroadcaster(new ObjectMapper(), meterRegistry,
+			BUFFER_SIZE, 2, Duration.ofHours(1), Duration.ofMillis(200));
+
+	@AfterEach
+	void tearDown() {
+		changeBroadcaster.close();
+		timingOutBroadcaster.close();
+	}
+
+	@Test
+	void slowSubscriberIsDisconnectedWithoutDelayingOthers() throws Exception {
+		RecordingEmitter slow = new RecordingEmitter(new CountDownLatch(1));
+		RecordingEmitter fast = new RecordingEmitter(new CountDownLatch(0));
+		changeBroadcaster.subscribe(slow);
+		changeBroadcaster.subscribe(fast);
+
+		// The slow client blocks in the first write, so its buffer fills up while the fast client keeps up
+		int changes = 3 * BUFFER_SIZE;
+		for (int i = 0; i < changes; i++) {
+			changeBroadcaster.onChange(new ChangeEvent().deleted(Tombstone.EntityType.REPOSITORY, (long) i));
+			// The subscription heartbeat and every change so far
+			fast.awaitSent(2 + i);
+		}
+		assertFalse(fast.completed);
+
+		slow.release.countDown();
+		slow.awaitCompleted();
+		assertTrue(slow.sent.get() <= 1 + BUFFER_SIZE);
+		assertEquals(1, changeBroadcaster.getSubscriberCount());
+		assertEquals(1.0, meterRegistry.counter("changes.stream.dropped").count());
+	}
+
+	@Test
+	void stuckSubscriberIsDisconnectedAfterWriteTimeout() throws Exception {
+		StuckEmitter stuck = new StuckEmitter();
+		RecordingEmitter fast = new RecordingEmitter(new CountDownLatch(0));
+		timingOutBroadcaster.subscribe(stuck);
+		timingOutBroadcaster.subscribe(fast);
+
+		// The stuck client never returns from the write of the subscription heartbeat
+		assertTrue(stuck.interrupted.await(5, TimeUnit.SECONDS));
+		assertEquals(1, timingOutBroadcaster.getSubscriberCount());
+		assertEquals(1.0, meterRegistry.counter("changes.stream.dropped").count());
+
+		timingOutBroadcaster.onChange(new ChangeEvent().deleted(Tombstone.EntityType.REPOSITORY, 1L));
+		fast.awaitSent(2);
+		assertFalse(fast.completed);
+	}
+
+	@Test
+	void subscribersAreLimited() {
+		assertTrue(changeBroadcaster.subscribe() != null);
+		assertTrue(changeBroadcaster.subscribe() != null);
+		assertNull(changeBroadcaster.subscribe());
+	}
+
+	private static class StuckEmitter extends SseEmitter {
+		private final CountDownLatch interrupted = new CountDownLatch(1);
+
+		@Override
+		public void send(Set<ResponseBodyEmitter.DataWithMediaType> items) throws IOException {
+			try {
+				new CountDownLatch(1).await();
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+				throw new InterruptedIOException();
+			}
+		}
+	}
+
+	private static class RecordingEmitter extends SseEmitter {
+		private final CountDownLatch release;
+
+		private final AtomicInteger sent = new AtomicInteger();
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private volatile boolean completed;
+
+		RecordingEmitter(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void send(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			sent.incrementAndGet();
+		}
+
+		@Override
+		public void complete() {
+			completed = true;
+			done.countDown();
+		}
+
+		void awaitSent(int count) throws InterruptedException {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (sent.get() < count && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(count, sent.get());
+		}
+
+		void awaitCompleted() throws InterruptedException {
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+		}
+	}
+
+}
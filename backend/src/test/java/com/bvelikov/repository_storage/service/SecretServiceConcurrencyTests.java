@@ -0,0 +1,118 @@
+package com.bvelikov.repository_storage.service;
+
+import com.bvelikov.repository_storage.dto.SecretDTO;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies that a secret key is unique within a repository when many requests add it at the same time. A thread
+ * that refreshes the secret id generator uses a second connection, so the pool has one connection more than there
+ * are threads.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.datasource.hikari.maximum-pool-size=33")
+class SecretServiceConcurrencyTests {
+
+	private static final int THREADS = 32;
+
+	@Autowired
+	private SecretService secretService;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Repository repository;
+
+	@BeforeEach
+	void setUp() {
+		repository = new Repository();
+		repository.setUrl("https://github.com/acme/concurrent");
+		repository.setSecrets(new HashSet<>());
+		repository = repositoryRepository.save(repository);
+	}
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void concurrentSavesOfSameKeyAddOneSecret() throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<HttpStatusCode>> statuses = new ArrayList<>();
+
+		try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+			for (int i = 0; i < THREADS; i++) {
+				String value = "value-" + i;
+				statuses.add(executor.submit(() -> {
+					start.await();
+					return secretService.saveSecret(secretDTO("token", value)).getStatusCode();
+				}));
+			}
+			start.countDown();
+
+			int saved = 0;
+			for (Future<HttpStatusCode> status : statuses) {
+				if (status.get() == HttpStatus.OK) {
+					saved++;
+				} else {
+					assertEquals(HttpStatus.BAD_REQUEST, status.get());
+				}
+			}
+			assertEquals(1, saved);
+		}
+
+		assertEquals(1, repositoryRepository.findWithSecretsById(repository.getId()).orElseThrow().getSecrets().size());
+		assertEquals(1, secretRepository.count());
+		assertEquals(1, jdbcTemplate.queryForObject(
+				"select count(*) from repository_secret_keys where repository_id = ?", Integer.class, repository.getId()));
+	}
+
+	@Test
+	void deletedKeyCanBeAddedAgain() {
+		SecretDTO secret = secretService.saveSecret(secretDTO("token", "first")).getBody();
+		assertEquals(HttpStatus.BAD_REQUEST, secretService.saveSecret(secretDTO("token", "second")).getStatusCode());
+
+		secretService.deleteSecret(secret.getId(), repository.getId());
+
+		assertEquals(HttpStatus.OK, secretService.saveSecret(secretDTO("token", "second")).getStatusCode());
+	}
+
+	private SecretDTO secretDTO(String key, String value) {
+		SecretDTO secretDTO = new SecretDTO();
+		secretDTO.setSecretKey(key);
+		secretDTO.setSecretValue(value);
+		secretDTO.setRepositoryId(repository.getId());
+		return secretDTO;
+	}
+
+}
@@ -0,0 +1,190 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.security.encryption.EncryptionUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies the single and bulk verification endpoints against a local stub of the GitHub API.
+ */
+@SpringBootTest(properties = "repository-storage.verification.max-concurrency-per-provider.GIT_HUB=" + BulkVerificationTests.GIT_HUB_CONCURRENCY)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BulkVerificationTests {
+
+	static final int GIT_HUB_CONCURRENCY = 2;
+
+	private static final String VALID_TOKEN = "valid-token";
+
+	private static final AtomicInteger inFlight = new AtomicInteger();
+	private static final AtomicInteger maxInFlight = new AtomicInteger();
+
+	private static final HttpServer gitHubStub = startGitHubStub();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	private final Map<Long, Integer> expectedStatuses = new HashMap<>();
+
+	@DynamicPropertySource
+	static void gitHubProperties(DynamicPropertyRegistry registry) {
+		registry.add("repository-storage.verification.git-hub-api-url",
+				() -> "http://localhost:" + gitHubStub.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopGitHubStub() {
+		gitHubStub.stop(0);
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			String token = i % 2 == 0 ? VALID_TOKEN : "invalid-token";
+			Repository repository = createRepository("https://github.com/owner/repository-" + i, token);
+			expectedStatuses.put(repository.getId(), i % 2 == 0 ? 200 : 401);
+		}
+
+		Repository unsupported = createRepository("https://example.com/owner/repository", VALID_TOKEN);
+		expectedStatuses.put(unsupported.getId(), 400);
+
+		maxInFlight.set(0);
+	}
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+		expectedStatuses.clear();
+	}
+
+	@Test
+	void verifyReturnsProviderStatus() throws Exception {
+		for (Map.Entry<Long, Integer> expected : expectedStatuses.entrySet()) {
+			mockMvc.perform(get("/api/repository/verify/{id}", expected.getKey()))
+					.andExpect(status().is(expected.getValue()));
+		}
+	}
+
+	@Test
+	void bulkVerifyAllStreamsResultForEveryRepository() throws Exception {
+		Map<Long, Integer> statuses = bulkVerify("{\"all\": true}");
+
+		assertEquals(expectedStatuses, statuses);
+		assertTrue(maxInFlight.get() <= GIT_HUB_CONCURRENCY, "Concurrency cap exceeded: " + maxInFlight.get());
+	}
+
+	@Test
+	void bulkVerifyIdsReportsMissingRepositories() throws Exception {
+		Long existingId = expectedStatuses.keySet().iterator().next();
+		Map<Long, Integer> statuses = bulkVerify("{\"ids\": [" + existingId + ", -1]}");
+
+		assertEquals(Map.of(existingId, expectedStatuses.get(existingId), -1L, 404), statuses);
+	}
+
+	@Test
+	void bulkVerifyRequiresIdsOrAll() throws Exception {
+		mockMvc.perform(post("/api/repository/verify").contentType(MediaType.APPLICATION_JSON).content("{}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private Map<Long, Integer> bulkVerify(String request) throws Exception {
+		MvcResult result = mockMvc.perform(post("/api/repository/verify")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(request))
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+		Map<Long, Integer> statuses = new HashMap<>();
+		for (String line : result.getResponse().getContentAsString().split("\n")) {
+			JsonNode node = objectMapper.readTree(line);
+			statuses.put(node.get("repositoryId").asLong(), node.get("status").asInt());
+		}
+
+		return statuses;
+	}
+
+	private Repository createRepository(String url, String token) throws Exception {
+		Secret secret = new Secret();
+		secret.setSecretKey("token");
+		secret.setSecretValue(EncryptionUtil.encrypt(token));
+
+		Set<Secret> secrets = new HashSet<>();
+		secrets.add(secretRepository.save(secret));
+
+		Repository repository = new Repository();
+		repository.setUrl(url);
+		repository.setSecrets(secrets);
+
+		return repositoryRepository.save(repository);
+	}
+
+	private static HttpServer startGitHubStub() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+			server.createContext("/repos/", exchange -> {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(50);
+					String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+					int status = ("Bearer " + VALID_TOKEN).equals(authorization) ? 200 : 401;
+					exchange.sendResponseHeaders(status, -1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					inFlight.decrementAndGet();
+					exchange.close();
+				}
+			});
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
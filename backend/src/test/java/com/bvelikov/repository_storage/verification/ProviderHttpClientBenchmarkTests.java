@@ -0,0 +1,150 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Compares the latency of a verification call against a local TLS stub of a provider, using the previous
+ * {@link RestTemplate}, a new {@link HttpClient} per call (a fresh TLS handshake every time) and the shared
+ * {@link ProviderHttpClient}.</p>
+ *
+ * <p>The benchmark is not part of the regular build. Run it with
+ * <code>mvn test -Dtest=ProviderHttpClientBenchmarkTests -Dbenchmark=true</code>.</p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProviderHttpClientBenchmarkTests {
+
+	private static final int WARMUP_CALLS = 200;
+	private static final int MEASURED_CALLS = 1000;
+
+	private static final byte[] RESPONSE = "{\"full_name\":\"owner/repository\"}".getBytes(StandardCharsets.UTF_8);
+
+	private static HttpsServer providerStub;
+	private static SSLContext sslContext;
+	private static String url;
+
+	@BeforeAll
+	static void startProviderStub() throws Exception {
+		// Otherwise the stub's separately written headers and body are delayed by Nagle's algorithm
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		try (InputStream inputStream = ProviderHttpClientBenchmarkTests.class.getResourceAsStream("/stub-tls.p12")) {
+			keyStore.load(inputStream, "changeit".toCharArray());
+		}
+
+		KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagerFactory.init(keyStore, "changeit".toCharArray());
+		TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		trustManagerFactory.init(keyStore);
+
+		sslContext = SSLContext.getInstance("TLS");
+		sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), null);
+		SSLContext.setDefault(sslContext);
+		HttpsURLConnection.setDefaultSSLSocketFactory(sslContext.getSocketFactory());
+
+		providerStub = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+		providerStub.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+		providerStub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		providerStub.createContext("/repos/", exchange -> {
+			exchange.getRequestBody().readAllBytes();
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, RESPONSE.length);
+			try (OutputStream outputStream = exchange.getResponseBody()) {
+				outputStream.write(RESPONSE);
+			}
+		});
+		providerStub.start();
+
+		url = "https://localhost:" + providerStub.getAddress().getPort() + "/repos/owner/repository";
+	}
+
+	@AfterAll
+	static void stopProviderStub() {
+		providerStub.stop(0);
+	}
+
+	@Test
+	void restTemplate() {
+		RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+
+		report("RestTemplate (SimpleClientHttpRequestFactory)", () ->
+				assertEquals(200, restTemplate.exchange(url, HttpMethod.GET, null, String.class).getStatusCode().value()));
+	}
+
+	@Test
+	void newHttpClientPerCall() {
+		report("HttpClient per call", () -> {
+			try (HttpClient httpClient = HttpClient.newBuilder().sslContext(sslContext).build()) {
+				HttpResponse<Void> response = httpClient.send(
+						java.net.http.HttpRequest.newBuilder(java.net.URI.create(url)).build(),
+						HttpResponse.BodyHandlers.discarding());
+				assertEquals(200, response.statusCode());
+			}
+		});
+	}
+
+	@Test
+	void providerHttpClient() {
+		ProviderHttpClient providerHttpClient = new ProviderHttpClient(new VerificationProperties(), new SimpleMeterRegistry());
+		try {
+			report("ProviderHttpClient", () ->
+					assertEquals(200, providerHttpClient.sendAsync(providerHttpClient.newRequest(url).GET().build()).get().statusCode()));
+		} finally {
+			providerHttpClient.close();
+		}
+	}
+
+	private static void report(String name, Call call) {
+		try {
+			for (int i = 0; i < WARMUP_CALLS; i++) {
+				call.run();
+			}
+
+			long[] latencies = new long[MEASURED_CALLS];
+			for (int i = 0; i < MEASURED_CALLS; i++) {
+				long start = System.nanoTime();
+				call.run();
+				latencies[i] = System.nanoTime() - start;
+			}
+
+			Arrays.sort(latencies);
+			System.out.printf("%-48s mean %8.1f us, p50 %8.1f us, p99 %8.1f us%n", name,
+					Arrays.stream(latencies).average().orElseThrow() / 1000.0,
+					latencies[MEASURED_CALLS / 2] / 1000.0,
+					latencies[MEASURED_CALLS * 99 / 100] / 1000.0);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@FunctionalInterface
+	private interface Call {
+		void run() throws Exception;
+	}
+
+}
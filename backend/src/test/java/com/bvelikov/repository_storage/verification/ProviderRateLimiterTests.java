@@ -0,0 +1,134 @@
+package com.bvelikov.repository_storage.verification;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderRateLimiterTests {
+
+	private static final String TOKEN = "token";
+
+	private static final String OTHER_TOKEN = "other-token";
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private VerificationProperties.RateLimit properties;
+
+	@BeforeEach
+	void setUp() {
+		properties = new VerificationProperties.RateLimit();
+		properties.setRequestsPerSecond(1);
+		properties.setBurst(2);
+		properties.setMaxWait(Duration.ZERO);
+		properties.setBackoffBase(Duration.ofSeconds(10));
+	}
+
+	@Test
+	void burstIsRefilledAtConfiguredRate() throws Exception {
+		ProviderRateLimiter rateLimiter = new ProviderRateLimiter(properties, clock::get);
+
+		assertTrue(rateLimiter.acquire(TOKEN).join().isPresent());
+		assertTrue(rateLimiter.acquire(TOKEN).join().isPresent());
+		assertTrue(rateLimiter.acquire(TOKEN).join().isEmpty());
+
+		advance(Duration.ofSeconds(1));
+		assertTrue(rateLimiter.acquire(TOKEN).join().isPresent());
+	}
+
+	@Test
+	void exhaustedProviderBudgetBlocksUntilReset() throws Exception {
+		ProviderRateLimiter rateLimiter = new ProviderRateLimiter(properties, clock::get);
+		long resetEpochSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 60;
+
+		assertTrue(rateLimiter.onResponse(TOKEN, 403, headers(
+				"X-RateLimit-Remaining", "0", "X-RateLimit-Reset", String.valueOf(resetEpochSeconds))));
+		assertEquals(0, rateLimiter.getRemaining());
+		assertTrue(rateLimiter.acquire(TOKEN).join().isEmpty());
+
+		advance(Duration.ofSeconds(61));
+		assertTrue(rateLimiter.acquire(TOKEN).join().isPresent());
+		assertEquals(-1, rateLimiter.getRemaining());
+	}
+
+	@Test
+	void exhaustedBudgetOfOneCredentialDoesNotBlockOthers() throws Exception {
+		ProviderRateLimiter rateLimiter = new ProviderRateLimiter(properties, clock::get);
+		long resetEpochSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 60;
+
+		assertTrue(rateLimiter.onResponse(TOKEN, 403, headers(
+				"X-RateLimit-Remaining", "0", "X-RateLimit-Reset", String.valueOf(resetEpochSeconds))));
+		assertTrue(rateLimiter.acquire(TOKEN).join().isEmpty());
+
+		assertTrue(rateLimiter.acquire(OTHER_TOKEN).join().isPresent());
+		assertEquals(0, rateLimiter.getRemaining());
+	}
+
+	@Test
+	void forbiddenWithRemainingBudgetIsNotRateLimited() throws Exception {
+		ProviderRateLimiter rateLimiter = new ProviderRateLimiter(properties, clock::get);
+
+		assertFalse(rateLimiter.onResponse(TOKEN, 403, headers("X-RateLimit-Remaining", "10")));
+		assertTrue(rateLimiter.acquire(TOKEN).join().isPresent());
+	}
+
+	@Test
+	void retryAfterBlocksForGivenSeconds() throws Exception {
+		ProviderRateLimiter rateLimiter = new ProviderRateLimiter(properties, clock::get);
+
+		assertTrue(rateLimiter.onResponse(TOKEN, 429, headers("Retry-After", "5")));
+		advance(Duration.ofSeconds(4));
+		assertTrue(rateLimiter.acquire(TOKEN).join().isEmpty());
+
+		advance(Duration.ofSeconds(1));
+		assertTrue(rateLimiter.acquire(TOKEN).join().isPresent());
+	}
+
+	@Test
+	void rateLimitWithoutRetryInformationBacksOffWithJitter() throws Exception {
+		ProviderRateLimiter rateLimiter = new ProviderRateLimiter(properties, clock::get);
+
+		assertTrue(rateLimiter.onResponse(TOKEN, 429, headers()));
+		advance(Duration.ofSeconds(4));
+		assertTrue(rateLimiter.acquire(TOKEN).join().isEmpty());
+
+		advance(Duration.ofSeconds(7));
+		assertTrue(rateLimiter.acquire(TOKEN).join().isPresent());
+	}
+
+	@Test
+	void callerWaitsForBudgetWithinMaxWait() throws Exception {
+		properties.setMaxWait(Duration.ofSeconds(2));
+		ProviderRateLimiter rateLimiter = new ProviderRateLimiter(properties);
+
+		assertTrue(rateLimiter.onResponse(TOKEN, 429, headers("Retry-After", "1")));
+		long waitedNanos = rateLimiter.acquire(TOKEN).join().orElseThrow();
+
+		assertTrue(waitedNanos >= TimeUnit.MILLISECONDS.toNanos(900), "Waited only " + waitedNanos + " ns");
+		assertEquals(0, rateLimiter.getQueueDepth());
+	}
+
+	private void advance(Duration duration) {
+		clock.addAndGet(duration.toNanos());
+	}
+
+	private static HttpHeaders headers(String... namesAndValues) {
+		Map<String, List<String>> headers = new HashMap<>();
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			headers.put(namesAndValues[i], List.of(namesAndValues[i + 1]));
+		}
+
+		return HttpHeaders.of(headers, (name, value) -> true);
+	}
+
+}
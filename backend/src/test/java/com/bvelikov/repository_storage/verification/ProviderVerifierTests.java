@@ -0,0 +1,147 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.security.encryption.EncryptionUtil;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies repositories of every supported provider against local stubs of the provider APIs. Each stub only
+ * accepts a valid token on the API path of the repository <i>owner/name</i>.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProviderVerifierTests {
+
+	private static final String VALID_TOKEN = "valid-token";
+
+	private static final Map<String, String> requestedPaths = new ConcurrentHashMap<>();
+
+	private static final HttpServer providerStub = startProviderStub();
+
+	@Autowired
+	private RepositoryVerificationService repositoryVerificationService;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@DynamicPropertySource
+	static void providerProperties(DynamicPropertyRegistry registry) {
+		String stubUrl = "http://localhost:" + providerStub.getAddress().getPort();
+		registry.add("repository-storage.verification.git-hub-api-url", () -> stubUrl + "/github");
+		registry.add("repository-storage.verification.git-lab-api-url", () -> stubUrl + "/gitlab");
+		registry.add("repository-storage.verification.bit-bucket-api-url", () -> stubUrl + "/bitbucket");
+	}
+
+	@AfterAll
+	static void stopProviderStub() {
+		providerStub.stop(0);
+	}
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+		requestedPaths.clear();
+	}
+
+	@Test
+	void gitHubRepositoryIsVerified() throws Exception {
+		assertEquals(200, verify("https://github.com/owner/name", VALID_TOKEN));
+		assertEquals(401, verify("https://github.com/owner/name.git", "invalid-token"));
+		assertEquals("/github/repos/owner/name", requestedPaths.get("github"));
+		assertTrue(meterRegistry.get("provider.requests").tag("provider", "GIT_HUB").tag("status", "401")
+				.timer().count() > 0);
+	}
+
+	@Test
+	void gitLabRepositoryIsVerified() throws Exception {
+		assertEquals(200, verify("https://gitlab.com/owner/name", VALID_TOKEN));
+		assertEquals(401, verify("git@gitlab.com:owner/name.git", "invalid-token"));
+		assertEquals("/gitlab/api/v4/projects/owner%2Fname", requestedPaths.get("gitlab"));
+	}
+
+	@Test
+	void bitBucketRepositoryIsVerified() throws Exception {
+		assertEquals(200, verify("https://bitbucket.org/owner/name/", VALID_TOKEN));
+		assertEquals(401, verify("https://bitbucket.org/owner/name", "invalid-token"));
+		assertEquals("/bitbucket/2.0/repositories/owner/name", requestedPaths.get("bitbucket"));
+	}
+
+	@Test
+	void repositoryWithoutNameIsRejectedWithoutCallingProvider() throws Exception {
+		for (String url : List.of("https://github.com/owner", "https://gitlab.com/owner", "https://bitbucket.org/",
+				"https://github.com/owner/name/tree/main")) {
+			assertEquals(400, verify(url, VALID_TOKEN));
+		}
+		assertEquals(Map.of(), requestedPaths);
+	}
+
+	private int verify(String url, String token) throws Exception {
+		Secret secret = new Secret();
+		secret.setSecretKey("token");
+		secret.setSecretValue(EncryptionUtil.encrypt(token));
+
+		Set<Secret> secrets = new HashSet<>();
+		secrets.add(secretRepository.save(secret));
+
+		Repository repository = new Repository();
+		repository.setUrl(url);
+		repository.setSecrets(secrets);
+
+		return repositoryVerificationService.verifyAsync(repositoryRepository.save(repository)).get().value();
+	}
+
+	private static HttpServer startProviderStub() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+			for (String provider : List.of("github", "gitlab", "bitbucket")) {
+				server.createContext("/" + provider + "/", exchange -> {
+					String path = exchange.getRequestURI().getRawPath();
+					requestedPaths.put(provider, path);
+
+					String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+					int status = !path.endsWith("name") ? 404
+							: ("Bearer " + VALID_TOKEN).equals(authorization) ? 200 : 401;
+					exchange.sendResponseHeaders(status, -1);
+					exchange.close();
+				});
+			}
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that a verification rate limited by the provider is retried once the provider allows it.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RateLimitedVerificationTests {
+
+	private static final AtomicInteger requests = new AtomicInteger();
+
+	private static final HttpServer gitHubStub = startGitHubStub();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@DynamicPropertySource
+	static void gitHubProperties(DynamicPropertyRegistry registry) {
+		registry.add("repository-storage.verification.git-hub-api-url",
+				() -> "http://localhost:" + gitHubStub.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopGitHubStub() {
+		gitHubStub.stop(0);
+	}
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+	}
+
+	@Test
+	void rateLimitedVerificationIsRetriedAfterRetryAfter() throws Exception {
+		Repository repository = new Repository();
+		repository.setUrl("https://github.com/owner/repository");
+		repository.setSecrets(new HashSet<>());
+		repository = repositoryRepository.save(repository);
+
+		mockMvc.perform(get("/api/repository/verify/{id}", repository.getId()))
+				.andExpect(status().isOk());
+
+		assertEquals(2, requests.get());
+		assertEquals(1.0, meterRegistry.get("provider.rate.limiter.limited").tag("provider", "GIT_HUB").counter().count());
+		assertEquals(0.0, meterRegistry.get("provider.rate.limiter.queue.depth").tag("provider", "GIT_HUB").gauge().value());
+	}
+
+	private static HttpServer startGitHubStub() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.createContext("/repos/", exchange -> {
+				if (requests.incrementAndGet() == 1) {
+					exchange.getResponseHeaders().add("Retry-After", "1");
+					exchange.sendResponseHeaders(429, -1);
+				} else {
+					exchange.sendResponseHeaders(200, -1);
+				}
+				exchange.close();
+			});
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
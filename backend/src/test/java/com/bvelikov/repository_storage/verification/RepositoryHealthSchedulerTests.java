@@ -0,0 +1,210 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.security.encryption.EncryptionUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies the scheduled verification against a local stub of the GitHub API. The scheduler does not run by itself
+ * in the <i>test</i> profile, so every run is started by the tests. With a window of four intervals, every run
+ * verifies a quarter of the repositories, and failed verifications are due again right away. The verification cache
+ * is enabled, but the scheduled verifications do not use it.
+ */
+@SpringBootTest(properties = {
+		"repository-storage.verification.health.interval=1h",
+		"repository-storage.verification.health.window=4h",
+		"repository-storage.verification.health.failure-retry=0s",
+		"repository-storage.verification.health.count-refresh=0s"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RepositoryHealthSchedulerTests {
+
+	private static final String VALID_TOKEN = "valid-token";
+
+	private static final AtomicInteger providerCalls = new AtomicInteger();
+
+	private static final HttpServer gitHubStub = startGitHubStub();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RepositoryHealthScheduler repositoryHealthScheduler;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@DynamicPropertySource
+	static void gitHubProperties(DynamicPropertyRegistry registry) {
+		registry.add("repository-storage.verification.git-hub-api-url",
+				() -> "http://localhost:" + gitHubStub.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopGitHubStub() {
+		gitHubStub.stop(0);
+	}
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void resultsAreListedWithoutProviderCalls() throws Exception {
+		Repository valid = createRepository("https://github.com/owner/valid", VALID_TOKEN);
+		Repository invalid = createRepository("https://github.com/owner/invalid", "invalid-token");
+		assertNull(health(valid.getId()).get("healthStatus").numberValue());
+
+		assertEquals(1, repositoryHealthScheduler.verifyDue());
+		assertEquals(1, repositoryHealthScheduler.verifyDue());
+
+		int calls = providerCalls.get();
+		JsonNode validHealth = health(valid.getId());
+		assertEquals(200, validHealth.get("healthStatus").asInt());
+		assertTrue(validHealth.get("healthLatencyMillis").asInt() >= 20);
+		assertNotNull(validHealth.get("healthCheckedAt").textValue());
+		assertEquals(401, health(invalid.getId()).get("healthStatus").asInt());
+		assertEquals(calls, providerCalls.get());
+	}
+
+	@Test
+	void cachedResultIsVerifiedAgainWithProviderLatency() throws Exception {
+		Repository repository = createRepository("https://github.com/owner/cached", VALID_TOKEN);
+		mockMvc.perform(get("/api/repository/verify/{id}", repository.getId()))
+				.andExpect(status().isOk());
+
+		int calls = providerCalls.get();
+		assertEquals(1, repositoryHealthScheduler.verifyDue());
+
+		assertEquals(calls + 1, providerCalls.get());
+		JsonNode health = health(repository.getId());
+		assertEquals(200, health.get("healthStatus").asInt());
+		assertTrue(health.get("healthLatencyMillis").asInt() >= 20);
+	}
+
+	@Test
+	void verificationsAreSpreadOverWindowAndChangedOrFailedRepositoriesComeFirst() throws Exception {
+		Map<Long, Integer> expectedStatuses = new HashMap<>();
+		for (int i = 0; i < 8; i++) {
+			String token = i == 0 ? "invalid-token" : VALID_TOKEN;
+			Repository repository = createRepository("https://github.com/owner/repository-" + i, token);
+			expectedStatuses.put(repository.getId(), i == 0 ? 401 : 200);
+		}
+
+		// Every run verifies a quarter of the repositories, the failed one is due again after it
+		for (int run = 0; run < 4; run++) {
+			assertEquals(2, repositoryHealthScheduler.verifyDue());
+		}
+		for (Map.Entry<Long, Integer> expected : expectedStatuses.entrySet()) {
+			assertEquals(expected.getValue(), health(expected.getKey()).get("healthStatus").asInt());
+		}
+		assertEquals(1, repositoryHealthScheduler.verifyDue());
+
+		// A changed repository is verified again before its window is over
+		Long changedId = expectedStatuses.keySet().stream().filter(id -> expectedStatuses.get(id) == 200)
+				.findFirst().orElseThrow();
+		String checkedAt = health(changedId).get("healthCheckedAt").textValue();
+		mockMvc.perform(put("/api/repository/{id}", changedId)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"url\": \"https://github.com/owner/changed\"}"))
+				.andExpect(status().isOk());
+
+		assertEquals(2, repositoryHealthScheduler.verifyDue());
+		assertTrue(health(changedId).get("healthCheckedAt").textValue().compareTo(checkedAt) > 0);
+		assertEquals(1, repositoryHealthScheduler.verifyDue());
+	}
+
+	private JsonNode health(Long id) throws Exception {
+		String response = mockMvc.perform(get("/api/repository/list"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		for (JsonNode repository : objectMapper.readTree(response)) {
+			if (repository.get("id").asLong() == id) {
+				return repository;
+			}
+		}
+		throw new AssertionError("Repository " + id + " is not listed");
+	}
+
+	private Repository createRepository(String url, String token) throws Exception {
+		Secret secret = new Secret();
+		secret.setSecretKey("token");
+		secret.setSecretValue(EncryptionUtil.encrypt(token));
+
+		Set<Secret> secrets = new HashSet<>();
+		secrets.add(secretRepository.save(secret));
+
+		Repository repository = new Repository();
+		repository.setUrl(url);
+		repository.setSecrets(secrets);
+
+		return repositoryRepository.save(repository);
+	}
+
+	private static HttpServer startGitHubStub() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+			server.createContext("/repos/", exchange -> {
+				providerCalls.incrementAndGet();
+				try {
+					Thread.sleep(20);
+					String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+					int status = ("Bearer " + VALID_TOKEN).equals(authorization) ? 200 : 401;
+					exchange.sendResponseHeaders(status, -1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					exchange.close();
+				}
+			});
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
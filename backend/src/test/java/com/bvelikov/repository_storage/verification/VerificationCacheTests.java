@@ -0,0 +1,177 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.dto.SecretDTO;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.security.encryption.EncryptionUtil;
+import com.bvelikov.repository_storage.service.SecretService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that verification results are cached, refreshed with conditional requests and invalidated when the
+ * repository or its secrets change.
+ */
+@SpringBootTest(properties = "repository-storage.verification.cache.ttl=" + VerificationCacheTests.TTL_MILLIS + "ms")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class VerificationCacheTests {
+
+	static final long TTL_MILLIS = 500;
+
+	private static final String E_TAG = "\"repository-v1\"";
+
+	private static final List<String> receivedETags = new CopyOnWriteArrayList<>();
+
+	private static final HttpServer gitHubStub = startGitHubStub();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RepositoryRepository repositoryRepository;
+
+	@Autowired
+	private SecretRepository secretRepository;
+
+	@Autowired
+	private SecretService secretService;
+
+	private Repository repository;
+
+	private Secret secret;
+
+	@DynamicPropertySource
+	static void gitHubProperties(DynamicPropertyRegistry registry) {
+		registry.add("repository-storage.verification.git-hub-api-url",
+				() -> "http://localhost:" + gitHubStub.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopGitHubStub() {
+		gitHubStub.stop(0);
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		secret = new Secret();
+		secret.setSecretKey("token");
+		secret.setSecretValue(EncryptionUtil.encrypt("token"));
+
+		Set<Secret> secrets = new HashSet<>();
+		secrets.add(secretRepository.save(secret));
+
+		repository = new Repository();
+		repository.setUrl("https://github.com/owner/repository");
+		repository.setSecrets(secrets);
+		repository = repositoryRepository.save(repository);
+
+		receivedETags.clear();
+	}
+
+	@AfterEach
+	void tearDown() {
+		repositoryRepository.deleteAll();
+		secretRepository.deleteAll();
+	}
+
+	@Test
+	void freshResultIsReturnedWithoutProviderCall() throws Exception {
+		verify();
+		verify();
+
+		assertEquals(1, receivedETags.size());
+	}
+
+	@Test
+	void staleResultIsRefreshedWithConditionalRequest() throws Exception {
+		verify();
+		Thread.sleep(TTL_MILLIS + 100);
+		verify();
+
+		assertEquals(2, receivedETags.size());
+		assertNull(receivedETags.get(0));
+		assertEquals(E_TAG, receivedETags.get(1));
+	}
+
+	@Test
+	void secretUpdateInvalidatesResult() throws Exception {
+		verify();
+
+		SecretDTO secretDTO = new SecretDTO();
+		secretDTO.setRepositoryId(repository.getId());
+		secretDTO.setSecretKey("token");
+		secretDTO.setSecretValue("rotated-token");
+		assertEquals(200, secretService.updateSecret(secret.getId(), secretDTO).getStatusCode().value());
+
+		verify();
+
+		assertEquals(2, receivedETags.size());
+		assertNull(receivedETags.get(1));
+	}
+
+	@Test
+	void repositoryUpdateInvalidatesResult() throws Exception {
+		verify();
+
+		mockMvc.perform(put("/api/repository/{id}", repository.getId())
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"url\": \"https://github.com/owner/renamed-repository\"}"))
+				.andExpect(status().isOk());
+
+		verify();
+
+		assertEquals(2, receivedETags.size());
+		assertNull(receivedETags.get(1));
+	}
+
+	private void verify() throws Exception {
+		mockMvc.perform(get("/api/repository/verify/{id}", repository.getId()))
+				.andExpect(status().isOk());
+	}
+
+	private static HttpServer startGitHubStub() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.createContext("/repos/", exchange -> {
+				String eTag = exchange.getRequestHeaders().getFirst("If-None-Match");
+				receivedETags.add(eTag);
+
+				exchange.getResponseHeaders().add("ETag", E_TAG);
+				exchange.sendResponseHeaders(E_TAG.equals(eTag) ? 304 : 200, -1);
+				exchange.close();
+			});
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
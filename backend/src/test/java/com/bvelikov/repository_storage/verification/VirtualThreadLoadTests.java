@@ -0,0 +1,181 @@
+package com.bvelikov.repository_storage.verification;
+
+import com.bvelikov.repository_storage.RepositoryStorageApplication;
+import com.bvelikov.repository_storage.model.Repository;
+import com.bvelikov.repository_storage.model.Secret;
+import com.bvelikov.repository_storage.repository.RepositoryRepository;
+import com.bvelikov.repository_storage.repository.SecretRepository;
+import com.bvelikov.repository_storage.security.encryption.EnvelopeEncryption;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Compares the throughput and latency of the verification endpoint with Tomcat's pool of platform threads and
+ * with virtual threads (<i>spring.threads.virtual.enabled</i>). The provider is a local stub that answers after
+ * {@value #PROVIDER_DELAY_MILLIS} ms, so every request blocks its thread for that long. The provider limits and the
+ * verification cache are disabled, so only the request threads and the connection pool bound the throughput. The
+ * stub and the load generator use platform threads, so they do not compete with the application for the carriers
+ * of virtual threads.</p>
+ *
+ * <p>The load test is not part of the regular build. Run it with
+ * <code>mvn test -Dtest=VirtualThreadLoadTests -Dbenchmark=true</code>. Virtual threads run on one carrier per core,
+ * so on a machine with very few cores add <code>-DargLine=-Djdk.virtualThreadScheduler.parallelism=4</code>.</p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VirtualThreadLoadTests {
+
+	private static final int PROVIDER_DELAY_MILLIS = 1000;
+	private static final int REPOSITORIES = 100;
+	private static final int CONCURRENCY = 400;
+	private static final int WARMUP_REQUESTS = 800;
+	private static final int MEASURED_REQUESTS = 4000;
+
+	private static HttpServer providerStub;
+
+	@BeforeAll
+	static void startProviderStub() throws IOException {
+		// The default backlog refuses most of the concurrent connections
+		providerStub = HttpServer.create(new InetSocketAddress("localhost", 0), 4 * CONCURRENCY);
+		providerStub.setExecutor(Executors.newCachedThreadPool());
+		providerStub.createContext("/repos/", exchange -> {
+			try {
+				Thread.sleep(PROVIDER_DELAY_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+		});
+		providerStub.start();
+	}
+
+	@AfterAll
+	static void stopProviderStub() {
+		providerStub.stop(0);
+	}
+
+	@Test
+	void platformThreads() throws Exception {
+		report("Platform threads (server.tomcat.threads.max=200)", false);
+	}
+
+	@Test
+	void virtualThreads() throws Exception {
+		report("Virtual threads", true);
+	}
+
+	private static void report(String name, boolean virtualThreads) throws Exception {
+		try (ConfigurableApplicationContext context = start(virtualThreads);
+			 HttpClient httpClient = HttpClient.newBuilder()
+					 .version(HttpClient.Version.HTTP_1_1)
+					 .executor(Executors.newCachedThreadPool())
+					 .build()) {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			List<Long> ids = createRepositories(context);
+
+			run(httpClient, port, ids, WARMUP_REQUESTS);
+
+			long start = System.nanoTime();
+			long[] latencies = run(httpClient, port, ids, MEASURED_REQUESTS);
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			Arrays.sort(latencies);
+			System.out.printf("%-48s %8.1f requests/s, p50 %8.1f ms, p99 %8.1f ms%n", name,
+					MEASURED_REQUESTS / seconds,
+					latencies[MEASURED_REQUESTS / 2] / 1e6,
+					latencies[MEASURED_REQUESTS * 99 / 100] / 1e6);
+		}
+	}
+
+	private static ConfigurableApplicationContext start(boolean virtualThreads) {
+		String stubUrl = "http://localhost:" + providerStub.getAddress().getPort();
+		// Arguments, unlike default properties, override the application properties
+		return new SpringApplicationBuilder(RepositoryStorageApplication.class)
+				.profiles("test")
+				.run(
+						"--server.port=0",
+						"--spring.threads.virtual.enabled=" + virtualThreads,
+						"--spring.datasource.url=jdbc:h2:mem:load-" + virtualThreads + ";DB_CLOSE_DELAY=-1;MODE=MySQL",
+						"--repository-storage.verification.git-hub-api-url=" + stubUrl,
+						"--repository-storage.verification.max-concurrency=" + CONCURRENCY,
+						"--repository-storage.verification.rate-limit.requests-per-second=1000000",
+						"--repository-storage.verification.rate-limit.burst=1000000",
+						"--repository-storage.verification.cache.enabled=false");
+	}
+
+	private static List<Long> createRepositories(ConfigurableApplicationContext context) throws Exception {
+		RepositoryRepository repositoryRepository = context.getBean(RepositoryRepository.class);
+		SecretRepository secretRepository = context.getBean(SecretRepository.class);
+		EnvelopeEncryption envelopeEncryption = context.getBean(EnvelopeEncryption.class);
+
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < REPOSITORIES; i++) {
+			Secret secret = new Secret();
+			secret.setSecretKey("token");
+			envelopeEncryption.encrypt("token-" + i).applyTo(secret);
+
+			Repository repository = new Repository();
+			repository.setUrl("https://github.com/owner/repository-" + i);
+			repository.setSecrets(new HashSet<>());
+			repository.getSecrets().add(secretRepository.save(secret));
+			ids.add(repositoryRepository.save(repository).getId());
+		}
+		return ids;
+	}
+
+	private static long[] run(HttpClient httpClient, int port, List<Long> ids, int requests) throws Exception {
+		long[] latencies = new long[requests];
+		Semaphore inFlight = new Semaphore(CONCURRENCY);
+
+		try (ExecutorService executor = Executors.newCachedThreadPool()) {
+			List<Future<Integer>> statuses = new ArrayList<>();
+			for (int i = 0; i < requests; i++) {
+				int index = i;
+				URI uri = URI.create("http://localhost:" + port + "/api/repository/verify/" + ids.get(i % ids.size()));
+
+				inFlight.acquire();
+				statuses.add(executor.submit(() -> {
+					try {
+						long start = System.nanoTime();
+						int status = httpClient.send(HttpRequest.newBuilder(uri).build(),
+								HttpResponse.BodyHandlers.discarding()).statusCode();
+						latencies[index] = System.nanoTime() - start;
+						return status;
+					} finally {
+						inFlight.release();
+					}
+				}));
+			}
+
+			for (Future<Integer> status : statuses) {
+				assertEquals(200, status.get());
+			}
+		}
+
+		return latencies;
+	}
+
+}
@@ -23,43 +23,250 @@ sap.ui.define([
                 originalItem: {},
                 selectedRepositoryId: null,
                 selectedKeyId: null,
-                existingSecretId: null
+                existingSecretId: null,
+                search: {
+                    url: "",
+                    type: "",
+                    secretKey: ""
+                },
+                nextCursor: null,
+                secrets: [],
+                secretsNextCursor: null,
+                changeToken: null
             });
 
-            // Load repository data from endpoint
-            HttpUtils.sendGetRequest(Constants.REPOSITORY_ENDPOINT_LIST)
+            // Take the change token before the lists are loaded, so no change made in between is missed
+            HttpUtils.sendGetRequest(Constants.CHANGES_ENDPOINT_LATEST)
+            .then(data => model.setProperty(Constants.CHANGE_TOKEN_PATH, data.nextToken))
+            .catch(error => console.log(error))
+            .finally(() => {
+                // Load the first page of repositories from endpoint
+                this.loadRepositories(model, false);
+
+                // Load the first page of secrets from endpoint
+                this.loadSecrets(model, false);
+
+                this.subscribeToChanges(model);
+            });
+
+            this.getView().setModel(model);
+        },
+
+        /**
+         * Loads a page of secrets.
+         * 
+         * Only the secrets' ids and keys are loaded. If append is true, the page following the
+         * last loaded one is added to the list, otherwise the list is replaced with the first page.
+         * 
+         * @public
+         */
+        loadSecrets: function(model, append) {
+            var parameters = new URLSearchParams({ size: Constants.SECRET_PAGE_SIZE });
+            if (append && model.getProperty(Constants.SECRETS_NEXT_CURSOR_PATH) !== null) {
+                parameters.set("after", model.getProperty(Constants.SECRETS_NEXT_CURSOR_PATH));
+            }
+
+            return HttpUtils.sendGetRequest(Constants.SECRET_ENDPOINT_PAGE + "?" + parameters.toString())
             .then(data => {
-                data.forEach(repository => {
-                    repository.secrets.forEach((secret) => {
-                        secret.status = Constants.STATUS_NONE;
-                        secret.isNew = false;
-                    });
-                    repository.isNew = false;
+                data.secrets.forEach(secret => {
+                    secret.status = Constants.STATUS_NONE;
+                    secret.isNew = false;
                 });
-                model.setProperty(Constants.REPOSITORIES_PATH, data);
 
-                this.resetSelectedIds(model, data);
+                var secrets = append
+                    ? model.getProperty(Constants.SECRETS_PATH).concat(data.secrets)
+                    : data.secrets;
+                model.setProperty(Constants.SECRETS_PATH, secrets);
+                model.setProperty(Constants.SECRETS_NEXT_CURSOR_PATH, data.nextCursor);
             })
             .catch(error => {
                 console.log(error);
-                MessageBox.error("Failed to fetch repositories!");
+                MessageBox.error("Failed to fetch secrets!");
             });
+        },
+
+        /**
+         * Executes the logic of the "More" button on "Select Secret" dialog.
+         * 
+         * Loads the next page of secrets.
+         * 
+         * @public
+         */
+        onSecretLoadMorePress: function() {
+            this.loadSecrets(this.getView().getModel(), true);
+        },
+
+        /**
+         * Subscribes to the changes pushed by the server, e.g. the changes made by other users.
+         * 
+         * The server closes the stream if the page does not keep up with the changes, and the
+         * browser reconnects by itself, so the changes missed in between are read whenever
+         * the stream (re)opens.
+         * 
+         * @public
+         */
+        subscribeToChanges: function(model) {
+            var eventSource = new EventSource(Constants.CHANGES_ENDPOINT_STREAM);
+            eventSource.addEventListener("open", () => this.syncChanges(model));
+            eventSource.addEventListener("change", event => this.applyChanges(model, JSON.parse(event.data)));
+        },
+
+        /**
+         * Reads the repositories and secrets that were created, changed or deleted since the
+         * last read and applies them to the loaded lists.
+         * 
+         * @public
+         */
+        syncChanges: function(model) {
+            var token = model.getProperty(Constants.CHANGE_TOKEN_PATH);
+            if (!token) {
+                return Promise.resolve();
+            }
 
-            // Load repository data from endpoint
-            HttpUtils.sendGetRequest(Constants.SECRET_ENDPOINT_LIST)
+            var parameters = new URLSearchParams({ since: token });
+            return HttpUtils.sendGetRequest(Constants.CHANGES_ENDPOINT_LIST + "?" + parameters.toString())
             .then(data => {
-                data.forEach(secret => {
+                this.applyChanges(model, data);
+                model.setProperty(Constants.CHANGE_TOKEN_PATH, data.nextToken);
+
+                if (data.hasMore) {
+                    return this.syncChanges(model);
+                }
+            })
+            .catch(error => console.log(error));
+        },
+
+        /**
+         * Applies created, changed and deleted repositories and secrets to the loaded lists.
+         * 
+         * A repository that is open in the "Edit Repository" dialog is not replaced. New
+         * repositories are only added if all repositories are shown, i.e. no search filter is
+         * set and all pages are loaded. New secrets are only added once all pages of secrets
+         * are loaded.
+         * 
+         * @public
+         */
+        applyChanges: function(model, data) {
+            var repositories = model.getProperty(Constants.REPOSITORIES_PATH);
+            var secrets = model.getProperty(Constants.SECRETS_PATH) || [];
+            var showsAllSecrets = model.getProperty(Constants.SECRETS_NEXT_CURSOR_PATH) === null;
+            var search = model.getProperty(Constants.SEARCH_PATH);
+            var showsAll = !search.url && !search.type && !search.secretKey
+                && model.getProperty(Constants.NEXT_CURSOR_PATH) === null;
+            var editedRepository = this.byId(Constants.EDIT_DIALOG_ID).isOpen()
+                ? model.getProperty(Constants.SELECTED_ITEM_PATH)
+                : null;
+
+            data.repositories.forEach(repository => {
+                repository.secrets.forEach(secret => {
                     secret.status = Constants.STATUS_NONE;
                     secret.isNew = false;
                 });
-                model.setProperty(Constants.SECRETS_PATH, data);
+                repository.isNew = false;
+
+                var index = repositories.findIndex(loaded => loaded.id === repository.id);
+                if (index >= 0 && repositories[index] !== editedRepository) {
+                    repositories[index] = repository;
+                } else if (index < 0 && showsAll) {
+                    repositories.push(repository);
+                }
+            });
+
+            data.secrets.forEach(secret => {
+                secret.status = Constants.STATUS_NONE;
+                secret.isNew = false;
+
+                var index = secrets.findIndex(loaded => loaded.id === secret.id);
+                if (index >= 0) {
+                    secrets[index] = secret;
+                } else if (showsAllSecrets) {
+                    secrets.push(secret);
+                }
+            });
+
+            data.deleted.forEach(tombstone => {
+                var list = tombstone.entityType === "REPOSITORY" ? repositories : secrets;
+                var index = list.findIndex(loaded => loaded.id === tombstone.id && loaded !== editedRepository);
+                if (index >= 0) {
+                    list.splice(index, 1);
+                }
+            });
+
+            model.setProperty(Constants.REPOSITORIES_PATH, repositories);
+            model.setProperty(Constants.SECRETS_PATH, secrets);
+        },
+
+        /**
+         * Loads a page of the repositories matching the current search.
+         * 
+         * The search is done by the server. If append is true, the page following the
+         * last loaded one is added to the list, otherwise the list is replaced with the
+         * first page.
+         * 
+         * @public
+         */
+        loadRepositories: function(model, append) {
+            var search = model.getProperty(Constants.SEARCH_PATH);
+            var parameters = new URLSearchParams({ size: Constants.REPOSITORY_PAGE_SIZE });
+            if (search.url) {
+                parameters.set("url", search.url);
+            }
+            if (search.type) {
+                parameters.set("type", search.type);
+            }
+            if (search.secretKey) {
+                parameters.set("secretKey", search.secretKey);
+            }
+            if (append && model.getProperty(Constants.NEXT_CURSOR_PATH) !== null) {
+                parameters.set("after", model.getProperty(Constants.NEXT_CURSOR_PATH));
+            }
+
+            return HttpUtils.sendGetRequest(Constants.REPOSITORY_ENDPOINT_SEARCH + "?" + parameters.toString())
+            .then(data => {
+                data.repositories.forEach(repository => {
+                    repository.secrets.forEach((secret) => {
+                        secret.status = Constants.STATUS_NONE;
+                        secret.isNew = false;
+                    });
+                    repository.isNew = false;
+                });
+
+                var repositories = append
+                    ? model.getProperty(Constants.REPOSITORIES_PATH).concat(data.repositories)
+                    : data.repositories;
+                model.setProperty(Constants.REPOSITORIES_PATH, repositories);
+                model.setProperty(Constants.NEXT_CURSOR_PATH, data.nextCursor);
+
+                if (!append) {
+                    this.resetSelectedIds(model, repositories);
+                }
             })
             .catch(error => {
                 console.log(error);
                 MessageBox.error("Failed to fetch repositories!");
             });
+        },
 
-            this.getView().setModel(model);
+        /**
+         * Executes the logic of the repository search field and filters.
+         * 
+         * Reloads the repository list from the first page.
+         * 
+         * @public
+         */
+        onRepositorySearch: function() {
+            this.loadRepositories(this.getView().getModel(), false);
+        },
+
+        /**
+         * Executes the logic of the "More" button.
+         * 
+         * Loads the next page of repositories.
+         * 
+         * @public
+         */
+        onRepositoryLoadMorePress: function() {
+            this.loadRepositories(this.getView().getModel(), true);
         },
 
         /**
@@ -286,7 +493,7 @@ sap.ui.define([
             var originalRepository = model.getProperty(Constants.ORIGINAL_ITEM_PATH);
             var repository = model.getProperty(Constants.SELECTED_ITEM_PATH);
 
-            if (!RepositoryUtils.validateRepository(repository, model)) {
+            if (!(await RepositoryUtils.validateRepository(repository, model))) {
                 return;
             }
 
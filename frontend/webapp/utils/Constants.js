@@ -4,6 +4,7 @@ sap.ui.define([], function() {
     const ROOT_URL = "http://127.0.0.1:8080";
     const REPOSITORY_ENDPOINT = ROOT_URL + "/api/repository";
     const SECRET_ENDPOINT = ROOT_URL + "/api/secret";
+    const CHANGES_ENDPOINT = ROOT_URL + "/api/changes";
 
     return {
         // Model paths
@@ -14,6 +15,10 @@ sap.ui.define([], function() {
         SELECTED_REPOSITORY_ID_PATH: "/selectedRepositoryId",
         SELECTED_KEY_ID_PATH: "/selectedKeyId",
         EXISTING_SECRET_ID_PATH: "/existingSecretId",
+        SEARCH_PATH: "/search",
+        NEXT_CURSOR_PATH: "/nextCursor",
+        SECRETS_NEXT_CURSOR_PATH: "/secretsNextCursor",
+        CHANGE_TOKEN_PATH: "/changeToken",
 
         // Component ids
         EDIT_DIALOG_ID: "editDialog",
@@ -23,17 +28,28 @@ sap.ui.define([], function() {
 
         // Urls used for fetching data
         REPOSITORY_ENDPOINT_LIST: REPOSITORY_ENDPOINT + "/list",
+        REPOSITORY_ENDPOINT_SEARCH: REPOSITORY_ENDPOINT + "/search",
         REPOSITORY_ENDPOINT_SAVE: REPOSITORY_ENDPOINT,
         REPOSITORY_ENDPOINT_UPDATE: REPOSITORY_ENDPOINT + "/{id}",
         REPOSITORY_ENDPOINT_DELETE: REPOSITORY_ENDPOINT + "/{id}",
         REPOSITORY_ENDPOINT_VERIFY: REPOSITORY_ENDPOINT + "/verify/{id}",
 
-        SECRET_ENDPOINT_LIST: SECRET_ENDPOINT + "/list",
+        SECRET_ENDPOINT_PAGE: SECRET_ENDPOINT + "/list/page",
         SECRET_ENDPOINT_SAVE: SECRET_ENDPOINT,
         SECRET_ENDPOINT_UPDATE: SECRET_ENDPOINT + "/{id}",
         SECRET_ENDPOINT_ADD_TO_REPOSITORY: SECRET_ENDPOINT + "/addToRepository/{id}?repositoryId={repositoryId}",
         SECRET_ENDPOINT_DELETE: SECRET_ENDPOINT + "/{id}?repositoryId={repositoryId}",
 
+        CHANGES_ENDPOINT_LIST: CHANGES_ENDPOINT,
+        CHANGES_ENDPOINT_LATEST: CHANGES_ENDPOINT + "/latest",
+        CHANGES_ENDPOINT_STREAM: CHANGES_ENDPOINT + "/stream",
+
+        // Number of repositories loaded at a time
+        REPOSITORY_PAGE_SIZE: 50,
+
+        // Number of secrets loaded at a time
+        SECRET_PAGE_SIZE: 50,
+
         // Secret statuses
         STATUS_NONE: "None",
         STATUS_CREATED: "Created",
@@ -10,26 +10,27 @@ sap.ui.define([
          * A method to validate a repository.
          * 
          * Verifies the repository url is unique and each of its secrets have a unique key.
+         * The url is checked by the server, since only a page of the repositories is loaded.
          * 
          * @public
          */
-        validateRepository: function(repository, model) {
+        validateRepository: async function(repository, model) {
             if (repository.url === null || repository.url === "") {
                 MessageBox.error("Url shouldn't be empty!");
                 return false;
             }
 
             // Verify repository url
-            var numberOfRepositoriesWithEditedUrl = 0;
-            var repositories = model.getProperty(Constants.REPOSITORIES_PATH);
-            repositories.forEach(repo => {
-                if (repo.url === repository.url) {
-                    numberOfRepositoriesWithEditedUrl++;
+            var parameters = new URLSearchParams({ url: repository.url, match: "EXACT", size: 1 });
+            try {
+                var data = await HttpUtils.sendGetRequest(Constants.REPOSITORY_ENDPOINT_SEARCH + "?" + parameters.toString());
+                if (data.repositories.some(repo => repository.isNew || repo.id !== repository.id)) {
+                    MessageBox.error("A repository with this url already exists!");
+                    return false;
                 }
-            });
-
-            if (numberOfRepositoriesWithEditedUrl > 1 || (repository.isNew && numberOfRepositoriesWithEditedUrl === 1)) {
-                MessageBox.error("A repository with this url already exists!");
+            } catch (error) {
+                console.log(error);
+                MessageBox.error("Failed to verify the repository url!");
                 return false;
             }
 